@@ -0,0 +1,44 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.work.ListenableWorker;
+import androidx.work.testing.TestListenableWorkerBuilder;
+import com.google.firebase.auth.FirebaseAuth;
+import java.util.Collections;
+import okhttp3.Cache;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class CategoryRefreshWorkerTest {
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        //No user means no genres, so no discover prefetch either
+        FirebaseAuth.getInstance().signOut();
+    }
+
+    @Test
+    public void freshCategoriesAreLeftAlone() {
+        PreferencesHelper preferencesHelper = new PreferencesHelper(context);
+        for (String category : CategoryRefresher.HOME_CATEGORIES) {
+            preferencesHelper.saveMovies(Collections.singletonList(
+                    new Movie("550", "Fight Club", "1999-10-15", null, null, "", 8.4, null, 0, null)), category);
+        }
+        Cache cache = ApiClient.getHttpCache();
+        int requestsBefore = cache != null ? cache.requestCount() : 0;
+
+        CategoryRefreshWorker worker = TestListenableWorkerBuilder.from(context, CategoryRefreshWorker.class).build();
+        ListenableWorker.Result result = worker.doWork();
+
+        assertEquals(ListenableWorker.Result.success(), result);
+        assertEquals(requestsBefore, cache != null ? cache.requestCount() : 0);
+    }
+}
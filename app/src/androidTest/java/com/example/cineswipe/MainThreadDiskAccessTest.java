@@ -0,0 +1,90 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.StrictMode;
+import android.os.strictmode.Violation;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+//What the screens do with the caches on the main thread, under a StrictMode policy that records every disk access
+@RunWith(AndroidJUnit4.class)
+public class MainThreadDiskAccessTest {
+    private Context context;
+    private final List<Violation> violations = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() {
+        //penaltyListener needs Android 9
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.P);
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        //Opened off the main thread at startup, as CacheHydrator does
+        SeenMovieFilter.getInstance(context);
+        SwipeRanker.getInstance(context);
+    }
+
+    @Test
+    public void cacheCallsFromTheUiDoNoDiskIo() {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Movie movie = new Movie(String.valueOf(550 + i), "Title " + i, "1999-10-15", "/poster" + i + ".jpg",
+                    null, "Overview " + i, 7.5, null, 0, null);
+            movie.setGenreIds(new int[]{18, 53});
+            movies.add(movie);
+        }
+
+        onMainThread(() -> {
+            PreferencesHelper preferencesHelper = new PreferencesHelper(context);
+            preferencesHelper.saveMovies(movies, "popular");
+            preferencesHelper.getCachedMovies("popular", false);
+            preferencesHelper.saveMovieDetails(movies.get(0));
+
+            SwipeRanker ranker = SwipeRanker.getInstance(context);
+            for (Movie movie : movies) {
+                ranker.onSwiped(movie, true);
+            }
+            ranker.rank(movies);
+
+            SeenMovieFilter filter = SeenMovieFilter.getInstance(context);
+            filter.filterUnseen(movies);
+
+            DeckSnapshot.save(context, "main_thread_test",
+                    new DeckSnapshot("test", movies, 3, Collections.emptyList(), new HashSet<>()));
+            //Warm return, served from memory
+            DeckSnapshot.restore(context, "main_thread_test", "test");
+
+            CacheHydrator.getInstance(context).loadCategory("popular", (cached, state) -> { });
+        });
+
+        assertTrue(violations.toString(), violations.isEmpty());
+    }
+
+    private void onMainThread(Runnable work) {
+        StrictMode.ThreadPolicy[] previous = new StrictMode.ThreadPolicy[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            previous[0] = StrictMode.getThreadPolicy();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyListener(Runnable::run, violations::add)
+                    .build());
+        });
+        try {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(work);
+            //Main-thread violations reach the listener after the message that caused them
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        } finally {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> StrictMode.setThreadPolicy(previous[0]));
+        }
+    }
+}
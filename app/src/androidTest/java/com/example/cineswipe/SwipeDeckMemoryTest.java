@@ -0,0 +1,83 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.yuyakaido.android.cardstackview.CardStackLayoutManager;
+import com.yuyakaido.android.cardstackview.CardStackView;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+//10k swipes through the card adapter the way the swipe screens drive it: pages appended as the deck
+//runs low, trimSwiped posted after every swipe. The deck must stay a window and swiped movies must go
+@RunWith(AndroidJUnit4.class)
+public class SwipeDeckMemoryTest {
+    private static final int SWIPES = 10_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int LOW_WATER = 5;
+    //History kept behind the top card, one trim batch not yet dropped, and a page and a half ahead
+    private static final int MAX_CARDS = 10 + 20 + LOW_WATER + PAGE_SIZE;
+
+    @Test
+    public void deckStaysAWindowOverTenThousandSwipes() throws InterruptedException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        List<WeakReference<Movie>> swipedEarly = new ArrayList<>();
+        int[] maxCards = new int[1];
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            CardStackView cardStackView = new CardStackView(context);
+            CardStackLayoutManager manager = new CardStackLayoutManager(context);
+            MovieCardAdapter adapter = new MovieCardAdapter(context, new ArrayList<>());
+            cardStackView.setLayoutManager(manager);
+            cardStackView.setAdapter(adapter);
+
+            int nextId = 0;
+            for (int swipe = 0; swipe < SWIPES; swipe++) {
+                if (adapter.getItemCount() - manager.getTopPosition() <= LOW_WATER) {
+                    List<Movie> page = new ArrayList<>();
+                    for (int i = 0; i < PAGE_SIZE; i++) {
+                        page.add(movie(nextId++));
+                    }
+                    adapter.addMovies(page);
+                }
+                Movie top = adapter.getMovieAt(manager.getTopPosition());
+                if (swipe < 100) {
+                    swipedEarly.add(new WeakReference<>(top));
+                }
+                manager.setTopPosition(manager.getTopPosition() + 1);
+                adapter.trimSwiped(manager);
+                maxCards[0] = Math.max(maxCards[0], adapter.getItemCount());
+            }
+            assertEquals(SWIPES, nextId - (adapter.getItemCount() - manager.getTopPosition()));
+        });
+
+        assertTrue("deck grew to " + maxCards[0] + " cards", maxCards[0] <= MAX_CARDS);
+        for (int i = 0; i < 10 && !allCleared(swipedEarly); i++) {
+            Runtime.getRuntime().gc();
+            Thread.sleep(100);
+        }
+        assertTrue("swiped movies are still reachable", allCleared(swipedEarly));
+    }
+
+    private static boolean allCleared(List<WeakReference<Movie>> references) {
+        for (WeakReference<Movie> reference : references) {
+            if (reference.get() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Movie movie(int id) {
+        Movie movie = new Movie(String.valueOf(id), "Title " + id, "1999-10-15", "/poster" + id + ".jpg",
+                null, "Overview " + id, 7.5, null, 0, null);
+        movie.setGenreIds(new int[]{18, 53});
+        return movie;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+
+import android.content.Context;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+//The journal against the Firebase emulators, started with `firebase emulators:start --only auth,firestore`.
+//A separate FirebaseApp points at them so the app's default instances are left alone
+@RunWith(AndroidJUnit4.class)
+public class SwipeJournalEmulatorTest {
+    private static final String APP_NAME = "swipe-journal-emulator";
+    //The host machine as seen from the Android emulator
+    private static final String EMULATOR_HOST = "10.0.2.2";
+    private static final int AUTH_PORT = 9099;
+    private static final int FIRESTORE_PORT = 8080;
+
+    private static final int SWIPES_PER_MINUTE = 1_000;
+    //The minute is played back four times faster, batches fill on swipe count long before the 10s timer
+    private static final long SIMULATED_MINUTE_MS = 15_000;
+    private static final int MAX_BATCH_SWIPES = 400;
+    private static final int FLUSH_AT_SWIPES = 50;
+    private static final long COMMIT_TIMEOUT_MS = 1_000;
+
+    private static FirebaseAuth auth;
+    private static FirebaseFirestore firestore;
+
+    private File dir;
+
+    @BeforeClass
+    public static void connect() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        FirebaseApp app = FirebaseApp.initializeApp(context, FirebaseOptions.fromResource(context), APP_NAME);
+        auth = FirebaseAuth.getInstance(app);
+        auth.useEmulator(EMULATOR_HOST, AUTH_PORT);
+        firestore = FirebaseFirestore.getInstance(app);
+        firestore.useEmulator(EMULATOR_HOST, FIRESTORE_PORT);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dir = new File(context.getCacheDir(), "swipe_journal_test");
+        deleteDir();
+        assertTrue(dir.mkdirs());
+        try {
+            //A new anonymous user per test, so its swipes collection starts empty
+            auth.signOut();
+            Tasks.await(auth.signInAnonymously(), 10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            //The emulators aren't running
+            assumeNoException(e);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Tasks.await(firestore.enableNetwork(), 10, TimeUnit.SECONDS);
+        deleteDir();
+    }
+
+    @Test
+    public void thousandSwipesAMinuteAreCommittedOnceInBatches() throws Exception {
+        SwipeJournal journal = new SwipeJournal(dir, COMMIT_TIMEOUT_MS, auth, firestore);
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        journal.setCommitListener(batches::add);
+
+        long interval = SIMULATED_MINUTE_MS / SWIPES_PER_MINUTE;
+        for (int i = 0; i < SWIPES_PER_MINUTE; i++) {
+            journal.record(String.valueOf(100_000 + i), i % 3 == 0);
+            Thread.sleep(interval);
+        }
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (committed(batches) < SWIPES_PER_MINUTE && System.currentTimeMillis() < deadline) {
+            journal.flushSoon();
+            Thread.sleep(200);
+        }
+
+        Set<String> movieIds = new HashSet<>();
+        synchronized (batches) {
+            for (List<String> batch : batches) {
+                assertTrue("batch of " + batch.size(), batch.size() <= MAX_BATCH_SWIPES);
+                for (String movieId : batch) {
+                    assertTrue(movieId + " committed twice", movieIds.add(movieId));
+                }
+            }
+            //Batches go out on count, each but the last is at least FLUSH_AT_SWIPES
+            assertTrue(batches.size() + " batches", batches.size() >= SWIPES_PER_MINUTE / MAX_BATCH_SWIPES
+                    && batches.size() <= SWIPES_PER_MINUTE / FLUSH_AT_SWIPES + 1);
+        }
+        assertEquals(SWIPES_PER_MINUTE, movieIds.size());
+        assertEquals(SWIPES_PER_MINUTE, Tasks.await(firestore.collection("users")
+                .document(auth.getCurrentUser().getUid()).collection("swipes").get(), 10, TimeUnit.SECONDS).size());
+    }
+
+    //Offline, Firestore queues the batch and commit() never completes; the journal must give up and retry
+    @Test
+    public void offlineCommitTimesOutAndIsRetried() throws Exception {
+        Tasks.await(firestore.disableNetwork(), 10, TimeUnit.SECONDS);
+        SwipeJournal journal = new SwipeJournal(dir, COMMIT_TIMEOUT_MS, auth, firestore);
+        journal.record("550", true);
+        journal.flushSoon();
+        assertTrue(journal.isCommitting());
+
+        Thread.sleep(COMMIT_TIMEOUT_MS * 2);
+
+        assertFalse(journal.isCommitting());
+        assertEquals(1, journal.getConsecutiveFailures());
+    }
+
+    private static int committed(List<List<String>> batches) {
+        int count = 0;
+        synchronized (batches) {
+            for (List<String> batch : batches) {
+                count += batch.size();
+            }
+        }
+        return count;
+    }
+
+    private void deleteDir() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
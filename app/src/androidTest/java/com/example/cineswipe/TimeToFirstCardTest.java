@@ -0,0 +1,72 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+//onCreate to the first bound card on HomeActivity, restoring a saved deck: once cold (the first time the
+//screen is created in this process) and once warm. Filter logcat by "TimeToFirstCard" for the numbers
+@RunWith(AndroidJUnit4.class)
+public class TimeToFirstCardTest {
+    private static final String TAG = "TimeToFirstCard";
+    //The restored card has to be there within a few frames, not after a network round trip
+    private static final long BUDGET_MS = 1000;
+    private static final int CARDS = 40;
+    //Far above real TMDB ids, so SeenMovieFilter never drops them
+    private static final int FIRST_ID = 60_000_000;
+
+    private final BlockingQueue<String> spans = new LinkedBlockingQueue<>();
+
+    @After
+    public void tearDown() {
+        StartupTrace.setSpanListener(null);
+    }
+
+    @Test
+    public void restoredDeckBindsItsFirstCardWithinBudget() throws InterruptedException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        List<Movie> cards = new ArrayList<>();
+        for (int i = 0; i < CARDS; i++) {
+            Movie movie = new Movie(String.valueOf(FIRST_ID + i), "Title " + i, "1999-10-15",
+                    "/poster" + i + ".jpg", null, "Overview " + i, 7.5, null, 0, null);
+            movie.setGenreIds(new int[]{18, 53});
+            cards.add(movie);
+        }
+        StartupTrace.setSpanListener((span, millis, cold) -> {
+            if (HomeActivity.FIRST_CARD_SPAN.equals(span)) {
+                spans.add((cold ? "cold" : "warm") + " " + millis);
+            }
+        });
+
+        long[] millis = new long[2];
+        for (int run = 0; run < millis.length; run++) {
+            DeckSnapshot.save(context, HomeActivity.SNAPSHOT_NAME, new DeckSnapshot(
+                    HomeActivity.RANDOM_DECK_PREFIX + "popularity.desc", cards, 0,
+                    Collections.emptyList(), Collections.emptySet()));
+            try (ActivityScenario<HomeActivity> ignored = ActivityScenario.launch(HomeActivity.class)) {
+                String span = spans.poll(10, TimeUnit.SECONDS);
+                assertNotNull("no card was bound", span);
+                Log.i(TAG, "time to first card, " + span + "ms");
+                millis[run] = Long.parseLong(span.substring(span.indexOf(' ') + 1));
+            }
+        }
+
+        for (long time : millis) {
+            assertTrue(time + "ms", time < BUDGET_MS);
+        }
+    }
+}
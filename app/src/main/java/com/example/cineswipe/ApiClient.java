@@ -1,29 +1,92 @@
 package com.example.cineswipe;
 
+import android.content.Context;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 public class ApiClient {
     private static final String BASE_URL = "https://api.themoviedb.org/3/";
+    private static final long HTTP_CACHE_SIZE = 20L * 1024 * 1024; // 20 MB
+    private static final int RATE_LIMIT_BURST = 10;
+    private static final double RATE_LIMIT_PER_SECOND = 8;
+    private static final int MAX_RETRIES = 3;
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_OPEN_MILLIS = 30 * 1000;
+    private static Context appContext;
+    private static OkHttpClient httpClient;
+    private static OkHttpClient imageHttpClient;
     private static Retrofit retrofit;
+    private static ApiService apiService;
 
-    public static Retrofit getRetrofitInstance() {
+    //Called once from CineSwipeApplication so the HTTP cache can live in the app cache dir
+    public static synchronized void init(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    public static synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                    .connectTimeout(15, TimeUnit.SECONDS)
+                    .readTimeout(20, TimeUnit.SECONDS)
+                    .eventListenerFactory(NetworkBootstrap.EVENT_LISTENER_FACTORY)
+                    //Outermost first: stale-cache fallback, circuit breaker, retries, then the limiter for each attempt.
+                    //The limiter is not a network interceptor so a throttled call never sits on a pooled connection
+                    .addInterceptor(HttpCachePolicy.offlineInterceptor(appContext))
+                    .addInterceptor(new CircuitBreakerInterceptor(CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS))
+                    .addInterceptor(new RetryInterceptor(MAX_RETRIES))
+                    .addInterceptor(new RateLimitInterceptor(RATE_LIMIT_BURST, RATE_LIMIT_PER_SECOND))
+                    .addNetworkInterceptor(HttpCachePolicy.networkInterceptor());
+            if (appContext != null) {
+                builder.cache(new Cache(new File(appContext.getCacheDir(), "http_cache"), HTTP_CACHE_SIZE));
+            }
+            httpClient = builder.build();
+        }
+        return httpClient;
+    }
+
+    //Shares the connection pool and dispatcher with the API client, but none of the TMDB API
+    //interceptors or the HTTP cache; Glide keeps its own disk cache
+    public static synchronized OkHttpClient getImageHttpClient() {
+        if (imageHttpClient == null) {
+            OkHttpClient.Builder builder = getHttpClient().newBuilder();
+            builder.interceptors().clear();
+            builder.networkInterceptors().clear();
+            imageHttpClient = builder.cache(null).build();
+        }
+        return imageHttpClient;
+    }
+
+    //Exposes request/network/hit counts of the on-disk response cache
+    public static Cache getHttpCache() {
+        return getHttpClient().cache();
+    }
+
+    //One Retrofit proxy for the whole process instead of create() per fetch
+    public static synchronized ApiService getApiService() {
+        if (apiService == null) {
+            apiService = getRetrofitInstance().create(ApiService.class);
+        }
+        return apiService;
+    }
+
+    public static synchronized Retrofit getRetrofitInstance() {
         if (retrofit == null) {
             retrofit = new Retrofit.Builder()
                     .baseUrl(BASE_URL)
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .client(getHttpClient())
+                    .addCallAdapterFactory(new CoalescingCallAdapterFactory(TmdbTypeAdapters.GSON))
+                    .addConverterFactory(new TmdbPageParser.ConverterFactory())
+                    .addConverterFactory(GsonConverterFactory.create(TmdbTypeAdapters.GSON))
                     .build();
         }
         return retrofit;
     }
 
     public static Retrofit getClient() {
-        if (retrofit == null) {
-            retrofit = new Retrofit.Builder()
-                    .baseUrl("https://api.themoviedb.org/3/")
-                    .addConverterFactory(GsonConverterFactory.create())
-                    .build();
-        }
-        return retrofit;
+        return getRetrofitInstance();
     }
 }
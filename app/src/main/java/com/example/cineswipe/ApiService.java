@@ -2,6 +2,7 @@ package com.example.cineswipe;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
 
@@ -34,6 +35,39 @@ public interface ApiService {
             @Query("page") int page
     );
 
+    //The home categories again with a request Cache-Control, so a background refresh can insist on asking TMDB
+    @GET("movie/popular")
+    Call<MovieResponse> getPopularMovies(
+            @Header("Cache-Control") String cacheControl,
+            @Query("api_key") String apiKey,
+            @Query("language") String language,
+            @Query("page") int page
+    );
+
+    @GET("movie/upcoming")
+    Call<MovieResponse> getUpcomingMovies(
+            @Header("Cache-Control") String cacheControl,
+            @Query("api_key") String apiKey,
+            @Query("language") String language,
+            @Query("page") int page
+    );
+
+    @GET("movie/top_rated")
+    Call<MovieResponse> getTopRatedMovies(
+            @Header("Cache-Control") String cacheControl,
+            @Query("api_key") String apiKey,
+            @Query("language") String language,
+            @Query("page") int page
+    );
+
+    @GET("trending/movie/day")
+    Call<MovieResponse> getTrendingMovies(
+            @Header("Cache-Control") String cacheControl,
+            @Query("api_key") String apiKey,
+            @Query("language") String language,
+            @Query("page") int page
+    );
+
     @GET("genre/movie/list")
     Call<GenreResponse> getGenres(
             @Query("api_key") String apiKey,
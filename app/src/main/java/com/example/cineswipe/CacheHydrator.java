@@ -0,0 +1,94 @@
+package com.example.cineswipe;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Reads and decodes cached rows on a background thread and hands them to the UI on the main thread.
+//start() runs from Application.onCreate, so by the time MainActivity asks, the memory tier is usually warm
+public class CacheHydrator {
+    private static final String TAG = "CacheHydrator";
+
+    public interface CategoryCallback {
+        void onHydrated(List<Movie> movies, CachePolicy.State state);
+    }
+
+    public interface DetailsCallback {
+        void onLoaded(Movie movie, CachePolicy.State state);
+    }
+
+    private static CacheHydrator instance;
+
+    //Single thread: requests queue behind start(), so they become memory hits instead of second reads
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final Context appContext;
+    private final PreferencesHelper preferencesHelper;
+
+    private CacheHydrator(Context context) {
+        appContext = context;
+        preferencesHelper = new PreferencesHelper(context);
+    }
+
+    public static synchronized CacheHydrator getInstance(Context context) {
+        if (instance == null) {
+            instance = new CacheHydrator(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            //Maps and counts the swiped-movie bitset so the first deck doesn't do it on the main thread.
+            //Before the rows since it is cheap and a deck can open before they are done
+            SeenMovieFilter.getInstance(appContext);
+            for (String category : CategoryRefresher.HOME_CATEGORIES) {
+                List<Movie> movies = load(category);
+                StartupTrace.mark("hydrated_" + category + " (" + (movies != null ? movies.size() : 0) + " movies)");
+            }
+        });
+    }
+
+    public void loadCategory(String category, CategoryCallback callback) {
+        executor.execute(() -> {
+            List<Movie> movies = load(category);
+            CachePolicy.State state = preferencesHelper.getCategoryState(category);
+            mainHandler.post(() -> callback.onHydrated(movies, state));
+        });
+    }
+
+    public void loadDetails(String movieId, DetailsCallback callback) {
+        executor.execute(() -> {
+            Movie movie = null;
+            CachePolicy.State state = CachePolicy.State.MISSING;
+            try {
+                movie = preferencesHelper.getCachedMovieDetails(movieId);
+                state = preferencesHelper.getDetailsState(movieId);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Reading cached details for " + movieId + " failed", e);
+            }
+            Movie loaded = movie;
+            CachePolicy.State loadedState = state;
+            mainHandler.post(() -> callback.onLoaded(loaded, loadedState));
+        });
+    }
+
+    //Revalidation is left to the caller, it knows whether anyone is listening
+    private List<Movie> load(String category) {
+        try {
+            return preferencesHelper.getCachedMovies(category, false);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Hydrating " + category + " failed", e);
+            return null;
+        }
+    }
+}
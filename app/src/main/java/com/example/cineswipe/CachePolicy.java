@@ -0,0 +1,127 @@
+package com.example.cineswipe;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Decides how old cached data may be before it is revalidated (soft TTL) or no longer shown (hard TTL).
+//Category soft TTLs adapt: they stretch while refreshes keep finding the same movies and shrink when they don't
+public class CachePolicy {
+
+    public enum State {
+        MISSING,  // nothing cached, fetch
+        FRESH,    // show, no request
+        STALE,    // show, revalidate once in the background
+        EXPIRED   // don't show unless the fetch fails
+    }
+
+    public interface Clock {
+        long now();
+
+        Clock SYSTEM = System::currentTimeMillis;
+    }
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    //Unchanged refreshes stretch the soft TTL by half, a change halves it
+    private static final double GROWTH_ON_UNCHANGED = 1.5;
+    private static final double SHRINK_ON_CHANGED = 0.5;
+    //Learned TTLs stay within [base / 4, base * 4] and never exceed the hard TTL
+    private static final int ADAPTIVE_RANGE = 4;
+
+    static final class Rule {
+        final long softTtl;
+        final long hardTtl;
+
+        Rule(long softTtl, long hardTtl) {
+            this.softTtl = softTtl;
+            this.hardTtl = hardTtl;
+        }
+    }
+
+    private static final Rule DEFAULT_RULE = new Rule(HOUR, DAY);
+    private static final Rule DETAILS_RULE = new Rule(7 * DAY, 30 * DAY);
+
+    private static CachePolicy instance;
+
+    private final Map<String, Rule> categoryRules = new HashMap<>();
+    private final Clock clock;
+
+    CachePolicy(Clock clock) {
+        this.clock = clock;
+        categoryRules.put("trending", new Rule(HOUR, 12 * HOUR));
+        categoryRules.put("popular", new Rule(6 * HOUR, 3 * DAY));
+        categoryRules.put("upcoming", new Rule(12 * HOUR, 7 * DAY));
+        categoryRules.put("toprated", new Rule(7 * DAY, 30 * DAY));
+    }
+
+    public static synchronized CachePolicy getInstance() {
+        if (instance == null) {
+            instance = new CachePolicy(Clock.SYSTEM);
+        }
+        return instance;
+    }
+
+    Rule ruleFor(String category) {
+        Rule rule = categoryRules.get(category);
+        return rule != null ? rule : DEFAULT_RULE;
+    }
+
+    //learnedSoftTtl <= 0 means nothing learned yet
+    public State categoryState(String category, long storedAt, long learnedSoftTtl) {
+        Rule rule = ruleFor(category);
+        return evaluate(storedAt, learnedSoftTtl > 0 ? learnedSoftTtl : rule.softTtl, rule.hardTtl);
+    }
+
+    public State detailsState(long storedAt) {
+        return evaluate(storedAt, DETAILS_RULE.softTtl, DETAILS_RULE.hardTtl);
+    }
+
+    State evaluate(long storedAt, long softTtl, long hardTtl) {
+        if (storedAt < 0) {
+            return State.MISSING;
+        }
+        //A clock that moved backwards makes the data look new; treat that as stale instead
+        long age = clock.now() - storedAt;
+        if (age < 0) {
+            return State.STALE;
+        }
+        if (age > hardTtl) {
+            return State.EXPIRED;
+        }
+        return age > Math.min(softTtl, hardTtl) ? State.STALE : State.FRESH;
+    }
+
+    //Soft TTL to use after a refresh, given whether the category's contents changed
+    public long nextSoftTtl(String category, long currentSoftTtl, boolean changed) {
+        Rule rule = ruleFor(category);
+        long current = currentSoftTtl > 0 ? currentSoftTtl : rule.softTtl;
+        long next = Math.round(current * (changed ? SHRINK_ON_CHANGED : GROWTH_ON_UNCHANGED));
+        long min = rule.softTtl / ADAPTIVE_RANGE;
+        long max = Math.min(rule.softTtl * ADAPTIVE_RANGE, rule.hardTtl);
+        return Math.max(min, Math.min(max, next));
+    }
+
+    //Fingerprint of a category's ids regardless of order, a list that was only reshuffled is unchanged
+    public static long contentHash(List<Movie> movies) {
+        long hash = movies.size();
+        for (Movie movie : movies) {
+            String id = movie.getId();
+            hash += mix(id != null ? id.hashCode() : 0);
+        }
+        return hash;
+    }
+
+    //Spreads an id's hash over all 64 bits so a sum of them rarely collides
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    public long now() {
+        return clock.now();
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.cineswipe;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.bumptech.glide.Glide;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import retrofit2.Response;
+
+//Pre-refreshes the home screen rows, the user's first genre-discover page and the top posters
+//while the device is on Wi-Fi with a healthy battery, so opening the app needs no network
+public class CategoryRefreshWorker extends Worker {
+    private static final String TAG = "CategoryRefreshWorker";
+    private static final String UNIQUE_WORK_NAME = "category_pre_refresh";
+    private static final long REFRESH_INTERVAL_HOURS = HttpCachePolicy.DISCOVER_MAX_AGE_HOURS;
+    //First posters visible in each row without scrolling
+    private static final int POSTERS_PER_CATEGORY = 6;
+    //Poster width in item_movie_horizontal
+    private static final int ROW_POSTER_WIDTH_DP = 160;
+    private static final long REMOTE_TIMEOUT_SECONDS = 30;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public CategoryRefreshWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                CategoryRefreshWorker.class, REFRESH_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(UNIQUE_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        PreferencesHelper preferencesHelper = new PreferencesHelper(getApplicationContext());
+        ApiService apiService = ApiClient.getApiService();
+        List<String> posterPaths = new ArrayList<>();
+        boolean failed = false;
+
+        for (String category : CategoryRefresher.HOME_CATEGORIES) {
+            if (isStopped()) {
+                return Result.retry();
+            }
+            //FRESH categories are left alone, the policy decides what is worth a request
+            if (preferencesHelper.getCategoryState(category) == CachePolicy.State.FRESH) {
+                continue;
+            }
+            try {
+                Response<MovieResponse> response = CategoryRefresher.createCall(apiService, category).execute();
+                if (response.isSuccessful() && response.body() != null && response.body().getMovies() != null) {
+                    List<Movie> movies = response.body().getMovies();
+                    //Merged and saved on the main thread, as CategoryRefresher does: rows may be binding these movies
+                    mainHandler.post(() -> preferencesHelper.saveMovies(MovieStore.updateAll(movies), category));
+                    for (int i = 0; i < movies.size() && i < POSTERS_PER_CATEGORY; i++) {
+                        posterPaths.add(movies.get(i).getPosterPath());
+                    }
+                } else {
+                    failed = true;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Pre-refresh of " + category + " failed", e);
+                failed = true;
+            }
+        }
+
+        prefetchDiscoverPages(apiService);
+        prefetchPosters(posterPaths);
+        Log.d(TAG, "Pre-refresh done, " + posterPaths.size() + " posters prefetched");
+        return failed ? Result.retry() : Result.success();
+    }
+
+    //Page 1 of the combinations a new genre deck starts with, so its first requests are served from the OkHttp cache
+    private void prefetchDiscoverPages(ApiService apiService) {
+        List<String> genres = loadUserGenres();
+        if (genres == null || genres.isEmpty()) {
+            return;
+        }
+        GenreDiscoveryScheduler scheduler =
+                new GenreDiscoveryScheduler(apiService, Constants.API_KEY, genres, new HashSet<>());
+        for (String combination : scheduler.peekCombinations()) {
+            if (isStopped()) {
+                return;
+            }
+            try {
+                apiService.getMoviesByGenres(Constants.API_KEY, combination, 1).execute();
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Discover prefetch failed for " + combination, e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> loadUserGenres() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            return null;
+        }
+        try {
+            DocumentSnapshot document = Tasks.await(FirebaseFirestore.getInstance()
+                    .collection("users").document(user.getUid()).get(), REMOTE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return document.exists() ? (List<String>) document.get("genres") : null;
+        } catch (Exception e) {
+            Log.w(TAG, "Could not load user genres", e);
+            return null;
+        }
+    }
+
+    //downloadOnly stores the source bytes in Glide's disk cache under the same url the rows will ask for
+    private void prefetchPosters(List<String> posterPaths) {
+        DisplayMetrics metrics = getApplicationContext().getResources().getDisplayMetrics();
+        int widthPx = Math.round(ROW_POSTER_WIDTH_DP * metrics.density);
+        for (String path : posterPaths) {
+            String url = TmdbImageUrls.poster(path, widthPx, false);
+            if (url == null || isStopped()) {
+                continue;
+            }
+            try {
+                Glide.with(getApplicationContext())
+                        .downloadOnly()
+                        .load(url)
+                        .submit()
+                        .get(REMOTE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                Log.w(TAG, "Poster prefetch failed for " + url, e);
+            }
+        }
+    }
+}
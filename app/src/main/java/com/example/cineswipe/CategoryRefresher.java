@@ -0,0 +1,116 @@
+package com.example.cineswipe;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+//Re-fetches page 1 of a home screen category and writes it back to the cache.
+//At most one refresh per category is in flight; listeners hear about every outcome on the main thread
+public class CategoryRefresher {
+
+    public interface Listener {
+        void onCategoryRefreshed(String category, List<Movie> movies);
+
+        void onCategoryRefreshFailed(String category, Throwable t);
+    }
+
+    private static final String TAG = "CategoryRefresher";
+    private static final String LANGUAGE = "en-US";
+    static final String[] HOME_CATEGORIES = {"popular", "trending", "toprated", "upcoming"};
+
+    private static CategoryRefresher instance;
+
+    private final Context appContext;
+    private final Set<String> inFlight = new HashSet<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private CategoryRefresher(Context context) {
+        appContext = context;
+    }
+
+    public static synchronized CategoryRefresher getInstance(Context context) {
+        if (instance == null) {
+            instance = new CategoryRefresher(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    //Null for keys that aren't home screen categories. CachePolicy decides when a category is revalidated,
+    //so the call must reach TMDB even while HttpCachePolicy would still serve page 1 from the HTTP cache
+    static Call<MovieResponse> createCall(ApiService apiService, String category) {
+        switch (category) {
+            case "popular":
+                return apiService.getPopularMovies(HttpCachePolicy.REVALIDATE, Constants.API_KEY, LANGUAGE, 1);
+            case "trending":
+                return apiService.getTrendingMovies(HttpCachePolicy.REVALIDATE, Constants.API_KEY, LANGUAGE, 1);
+            case "toprated":
+                return apiService.getTopRatedMovies(HttpCachePolicy.REVALIDATE, Constants.API_KEY, LANGUAGE, 1);
+            case "upcoming":
+                return apiService.getUpcomingMovies(HttpCachePolicy.REVALIDATE, Constants.API_KEY, LANGUAGE, 1);
+            default:
+                return null;
+        }
+    }
+
+    public void refresh(String category) {
+        Call<MovieResponse> call = createCall(ApiClient.getApiService(), category);
+        if (call == null) {
+            return;
+        }
+        synchronized (inFlight) {
+            if (!inFlight.add(category)) {
+                return;
+            }
+        }
+        call.enqueue(new Callback<MovieResponse>() {
+            @Override
+            public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
+                finish(category);
+                if (response.isSuccessful() && response.body() != null && response.body().getMovies() != null) {
+                    List<Movie> movies = MovieStore.updateAll(response.body().getMovies());
+                    new PreferencesHelper(appContext).saveMovies(movies, category);
+                    for (Listener listener : listeners) {
+                        listener.onCategoryRefreshed(category, movies);
+                    }
+                } else {
+                    notifyFailed(category, new IOException("HTTP " + response.code()));
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
+                finish(category);
+                Log.w(TAG, "Background refresh of " + category + " failed", t);
+                notifyFailed(category, t);
+            }
+        });
+    }
+
+    private void notifyFailed(String category, Throwable t) {
+        for (Listener listener : listeners) {
+            listener.onCategoryRefreshFailed(category, t);
+        }
+    }
+
+    private void finish(String category) {
+        synchronized (inFlight) {
+            inFlight.remove(category);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.cineswipe;
+
+import android.app.Application;
+import android.content.pm.ApplicationInfo;
+import android.os.Build;
+import android.os.StrictMode;
+
+public class CineSwipeApplication extends Application {
+    private static final String OWN_PACKAGE = "com.example.cineswipe.";
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            enableStrictMode();
+        }
+        StartupTrace.mark("application_created");
+
+        //Cached rows start decoding before the first activity is even created
+        CacheHydrator.getInstance(this).start();
+        NetworkBootstrap.start(this);
+        MovieDatabase database = MovieDatabase.getInstance(this);
+        MovieDatabase.runWrite(database::compact);
+        CategoryRefreshWorker.schedule(this);
+    }
+
+    //Debug builds and instrumentation tests crash on disk access from this app's code on the main thread,
+    //cache reads and writes belong on executors. The few deliberate reads opt out with allowThreadDiskReads.
+    //Libraries doing their own main-thread I/O, e.g. Firebase reading its prefs, are only logged
+    private static void enableStrictMode() {
+        StrictMode.ThreadPolicy.Builder policy = new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .penaltyLog();
+        //Older releases have no listener to tell the two apart, they only log
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            policy.penaltyListener(Runnable::run, violation -> {
+                if (isOwnCode(violation.getStackTrace())) {
+                    throw new IllegalStateException("Disk access on the main thread", violation);
+                }
+            });
+        }
+        StrictMode.setThreadPolicy(policy.build());
+    }
+
+    //Whether the innermost frame outside the platform belongs to this app
+    private static boolean isOwnCode(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (className.startsWith("android.") || className.startsWith("java.") || className.startsWith("javax.")
+                    || className.startsWith("libcore.") || className.startsWith("dalvik.")
+                    || className.startsWith("com.android.") || className.startsWith("sun.")) {
+                continue;
+            }
+            return className.startsWith(OWN_PACKAGE);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.cineswipe;
+
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+//Stops sending requests to TMDB after repeated failures. While open, calls fail fast with
+//CircuitOpenException and HttpCachePolicy's offline interceptor answers them from the cache.
+//After the cool-down a single trial request decides whether to close again
+public class CircuitBreakerInterceptor implements Interceptor {
+    private static final String TAG = "CircuitBreaker";
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    public CircuitBreakerInterceptor(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        //Cache-only requests never reach TMDB, let them through so stale data can be served
+        if (request.cacheControl().onlyIfCached()) {
+            return chain.proceed(request);
+        }
+
+        if (!allowRequest()) {
+            throw new CircuitOpenException();
+        }
+
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            if (!chain.call().isCanceled()) {
+                onFailure();
+            } else {
+                onCanceled();
+            }
+            throw e;
+        }
+
+        if (response.code() >= 500 || response.code() == 429) {
+            onFailure();
+        } else {
+            onSuccess();
+        }
+        return response;
+    }
+
+    private synchronized boolean allowRequest() {
+        if (state == State.OPEN && SystemClock.elapsedRealtime() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            Log.d(TAG, "TMDB healthy again, closing circuit");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                Log.w(TAG, "Opening circuit after " + consecutiveFailures + " failures");
+            }
+            state = State.OPEN;
+            openedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private synchronized void onCanceled() {
+        trialInFlight = false;
+    }
+
+    public static class CircuitOpenException extends IOException {
+        public CircuitOpenException() {
+            super("TMDB circuit is open, serving cached data");
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.cineswipe;
+
+import androidx.annotation.NonNull;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+//Lets concurrent enqueue() calls for the same normalized URL share one network exchange and one parse.
+//Callers may change what they get back, so each one after the first receives its own copy of the body
+public class CoalescingCallAdapterFactory extends CallAdapter.Factory {
+    private static final AtomicLong issuedCalls = new AtomicLong();
+    private static final AtomicLong coalescedCalls = new AtomicLong();
+
+    private final Map<String, InFlight<?>> inFlight = new HashMap<>();
+    //Must be able to write and read back every response type, TmdbTypeAdapters.GSON does
+    private final Gson gson;
+
+    public CoalescingCallAdapterFactory(Gson gson) {
+        this.gson = gson;
+    }
+
+    public static long getIssuedCount() {
+        return issuedCalls.get();
+    }
+
+    public static long getCoalescedCount() {
+        return coalescedCalls.get();
+    }
+
+    @Override
+    public CallAdapter<?, ?> get(@NonNull Type returnType, @NonNull Annotation[] annotations, @NonNull Retrofit retrofit) {
+        if (getRawType(returnType) != Call.class) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        CallAdapter<Object, Call<Object>> delegate =
+                (CallAdapter<Object, Call<Object>>) retrofit.nextCallAdapter(this, returnType, annotations);
+        Type responseType = delegate.responseType();
+        return new CallAdapter<Object, Call<Object>>() {
+            @NonNull
+            @Override
+            public Type responseType() {
+                return responseType;
+            }
+
+            @NonNull
+            @Override
+            public Call<Object> adapt(@NonNull Call<Object> call) {
+                return new CoalescingCall<>(delegate.adapt(call), responseType);
+            }
+        };
+    }
+
+    static String normalize(Request request) {
+        HttpUrl url = request.url();
+        StringBuilder key = new StringBuilder(request.method())
+                .append(' ')
+                .append(url.scheme()).append("://")
+                .append(url.host()).append(':').append(url.port())
+                .append(url.encodedPath());
+        char separator = '?';
+        for (String name : new TreeSet<>(url.queryParameterNames())) {
+            for (String value : url.queryParameterValues(name)) {
+                key.append(separator).append(name).append('=').append(value);
+                separator = '&';
+            }
+        }
+        //A forced revalidation must not be answered by a plain request that may come from the cache
+        String cacheControl = request.header("Cache-Control");
+        if (cacheControl != null) {
+            key.append(" Cache-Control: ").append(cacheControl);
+        }
+        return key.toString();
+    }
+
+    //One network exchange and the callers waiting on it
+    private class InFlight<T> implements Callback<T> {
+        private final String key;
+        private final Call<T> call;
+        private final Type responseType;
+        private final List<CoalescingCall<T>> owners = new ArrayList<>();
+        private final List<Callback<T>> callbacks = new ArrayList<>();
+
+        InFlight(String key, Call<T> call, Type responseType) {
+            this.key = key;
+            this.call = call;
+            this.responseType = responseType;
+        }
+
+        void join(CoalescingCall<T> owner, Callback<T> callback) {
+            owners.add(owner);
+            callbacks.add(callback);
+        }
+
+        //Returns true when nobody is left waiting on this exchange
+        boolean leave(CoalescingCall<T> owner) {
+            int index = owners.indexOf(owner);
+            if (index >= 0) {
+                owners.remove(index);
+                callbacks.remove(index);
+            }
+            return owners.isEmpty();
+        }
+
+        private List<CoalescingCall<T>> finish(List<Callback<T>> outCallbacks) {
+            synchronized (CoalescingCallAdapterFactory.this) {
+                if (inFlight.get(key) == this) {
+                    inFlight.remove(key);
+                }
+                outCallbacks.addAll(callbacks);
+                return new ArrayList<>(owners);
+            }
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<T> ignored, @NonNull Response<T> response) {
+            List<Callback<T>> targets = new ArrayList<>();
+            List<CoalescingCall<T>> waiting = finish(targets);
+            //Copied before anyone sees the original, the first callback may change it
+            List<Response<T>> responses = new ArrayList<>(waiting.size());
+            boolean originalTaken = false;
+            for (CoalescingCall<T> owner : waiting) {
+                if (owner.isCanceled()) {
+                    responses.add(null);
+                } else {
+                    responses.add(originalTaken ? copyOf(response) : response);
+                    originalTaken = true;
+                }
+            }
+            for (int i = 0; i < waiting.size(); i++) {
+                if (responses.get(i) != null && !waiting.get(i).isCanceled()) {
+                    targets.get(i).onResponse(waiting.get(i), responses.get(i));
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<T> ignored, @NonNull Throwable t) {
+            List<Callback<T>> targets = new ArrayList<>();
+            List<CoalescingCall<T>> waiting = finish(targets);
+            for (int i = 0; i < waiting.size(); i++) {
+                if (!waiting.get(i).isCanceled()) {
+                    targets.get(i).onFailure(waiting.get(i), t);
+                }
+            }
+        }
+
+        //A deep copy through the converter's own JSON mapping, the raw response is shared as is
+        private Response<T> copyOf(Response<T> response) {
+            T body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                return response;
+            }
+            T copy = gson.fromJson(gson.toJsonTree(body, responseType), responseType);
+            return Response.success(copy, response.raw());
+        }
+    }
+
+    private class CoalescingCall<T> implements Call<T> {
+        private final Call<T> delegate;
+        private final Type responseType;
+        private volatile boolean canceled;
+        private volatile boolean executed;
+        private InFlight<T> group;
+
+        CoalescingCall(Call<T> delegate, Type responseType) {
+            this.delegate = delegate;
+            this.responseType = responseType;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<T> callback) {
+            if (executed) {
+                throw new IllegalStateException("Already executed.");
+            }
+            executed = true;
+
+            String key = normalize(delegate.request());
+            InFlight<T> newGroup = null;
+            synchronized (CoalescingCallAdapterFactory.this) {
+                @SuppressWarnings("unchecked")
+                InFlight<T> existing = (InFlight<T>) inFlight.get(key);
+                if (existing != null) {
+                    existing.join(this, callback);
+                    group = existing;
+                    coalescedCalls.incrementAndGet();
+                } else {
+                    newGroup = new InFlight<>(key, delegate, responseType);
+                    newGroup.join(this, callback);
+                    inFlight.put(key, newGroup);
+                    group = newGroup;
+                    issuedCalls.incrementAndGet();
+                }
+            }
+            if (newGroup != null) {
+                delegate.enqueue(newGroup);
+            }
+        }
+
+        @NonNull
+        @Override
+        public Response<T> execute() throws IOException {
+            executed = true;
+            issuedCalls.incrementAndGet();
+            return delegate.execute();
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        //Only the shared exchange is cancelled once every caller waiting on it has cancelled;
+        //a cancelled caller is dropped from the fan-out and gets no callback
+        @Override
+        public void cancel() {
+            canceled = true;
+            InFlight<T> current;
+            boolean abandoned;
+            synchronized (CoalescingCallAdapterFactory.this) {
+                current = group;
+                abandoned = current != null && current.leave(this);
+                if (abandoned && inFlight.get(current.key) == current) {
+                    inFlight.remove(current.key);
+                }
+            }
+            if (current == null) {
+                delegate.cancel();
+            } else if (abandoned) {
+                current.call.cancel();
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @NonNull
+        @Override
+        public Call<T> clone() {
+            return new CoalescingCall<>(delegate.clone(), responseType);
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
@@ -7,6 +7,13 @@ public class CreditsResponse {
     @SerializedName("cast")
     private List<Cast> cast;
 
+    public CreditsResponse() {
+    }
+
+    CreditsResponse(List<Cast> cast) {
+        this.cast = cast;
+    }
+
     public List<Cast> getCast() {
         return cast;
     }
@@ -27,6 +34,17 @@ public class CreditsResponse {
         @SerializedName("order")
         private int order;
 
+        public Cast() {
+        }
+
+        Cast(int id, String name, String character, String profilePath, int order) {
+            this.id = id;
+            this.name = name;
+            this.character = character;
+            this.profilePath = profilePath;
+            this.order = order;
+        }
+
         public int getId() {
             return id;
         }
@@ -0,0 +1,306 @@
+package com.example.cineswipe;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+//Builds deck pages from several paged TMDB lists at once (genre discover, trending, top rated, popular...).
+//Each source keeps its own page cursor and a buffer of unseen movies; pages are dealt by smooth weighted
+//round robin, and a source whose pages are mostly duplicates gets a smaller share of the fetches.
+//All methods must be called on the main thread, Retrofit delivers callbacks there
+public class DeckBlender {
+    private static final String TAG = "DeckBlender";
+    private static final double YIELD_SMOOTHING = 0.5;
+    //A source never drops below this share of its weight, so it can recover once it stops repeating
+    private static final double MIN_YIELD = 0.1;
+    //A deck page is dealt short rather than paging through long runs of duplicates
+    private static final int MAX_REQUESTS_PER_DECK_PAGE = 8;
+
+    public interface PageRequest {
+        Call<MovieResponse> create(int page);
+    }
+
+    public interface Listener {
+        //Empty only when every source is exhausted or the network failed with nothing buffered
+        void onBlended(List<Movie> movies);
+    }
+
+    private final List<Source> sources = new ArrayList<>();
+    //Everything buffered or dealt this session, O(1) dedup across sources
+    private final Set<String> dealtIds;
+    private final SeenMovieFilter swipedFilter;
+    private final List<Call<MovieResponse>> calls = new ArrayList<>();
+    //Deck pages asked for while another one is being built, served in order
+    private final ArrayDeque<Listener> waiting = new ArrayDeque<>();
+    private final ArrayDeque<Integer> waitingTargets = new ArrayDeque<>();
+    private Listener listener;
+    private int target;
+    private int requestsForPage = 0;
+    private int requestsIssued = 0;
+
+    public DeckBlender(Set<String> dealtIds, SeenMovieFilter swipedFilter) {
+        this.dealtIds = dealtIds != null ? dealtIds : new HashSet<>();
+        this.swipedFilter = swipedFilter;
+    }
+
+    public DeckBlender addSource(String name, double weight, PageRequest request) {
+        sources.add(new Source(name, weight, request));
+        return this;
+    }
+
+    //Deck pages are built one at a time, later calls wait for the current one
+    public void next(int targetCount, Listener listener) {
+        if (this.listener != null) {
+            waiting.add(listener);
+            waitingTargets.add(targetCount);
+            return;
+        }
+        this.listener = listener;
+        this.target = targetCount;
+        this.requestsForPage = 0;
+        pump();
+    }
+
+    public void cancel() {
+        for (Call<MovieResponse> call : calls) {
+            call.cancel();
+        }
+        calls.clear();
+        for (Source source : sources) {
+            source.inFlight = false;
+        }
+        waiting.clear();
+        waitingTargets.clear();
+        listener = null;
+    }
+
+    public boolean isExhausted() {
+        for (Source source : sources) {
+            if (!source.isExhausted() || !source.buffer.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getRequestsIssued() {
+        return requestsIssued;
+    }
+
+    //A page still in flight is not counted as fetched, the restored source asks for it again
+    public List<DeckSnapshot.Cursor> getCursors() {
+        List<DeckSnapshot.Cursor> cursors = new ArrayList<>(sources.size());
+        for (Source source : sources) {
+            int nextPage = source.inFlight ? source.nextPage - 1 : source.nextPage;
+            cursors.add(new DeckSnapshot.Cursor(source.name, nextPage, source.totalPages, source.yield,
+                    new ArrayList<>(source.buffer)));
+        }
+        return cursors;
+    }
+
+    //Matched by source name, so a source added or renamed since simply starts from page 1.
+    //Call right after the sources are added; the buffered movies must already be in dealtIds
+    public void restoreCursors(List<DeckSnapshot.Cursor> cursors) {
+        for (DeckSnapshot.Cursor cursor : cursors) {
+            for (Source source : sources) {
+                if (source.name.equals(cursor.name)) {
+                    source.nextPage = cursor.nextPage;
+                    source.totalPages = cursor.totalPages;
+                    source.yield = cursor.yield;
+                    source.buffer.addAll(MovieStore.internAll(cursor.buffer));
+                }
+            }
+        }
+    }
+
+    //Tops up every source that is short of its share of the page, then deals once nothing is in flight
+    private void pump() {
+        if (listener == null) {
+            return;
+        }
+        double totalWeight = 0;
+        for (Source source : sources) {
+            if (!source.isExhausted() || !source.buffer.isEmpty()) {
+                totalWeight += source.effectiveWeight();
+            }
+        }
+        int buffered = 0;
+        for (Source source : sources) {
+            buffered += source.buffer.size();
+        }
+        boolean mayFetch = requestsForPage < MAX_REQUESTS_PER_DECK_PAGE;
+        if (buffered < target && totalWeight > 0 && mayFetch) {
+            for (Source source : sources) {
+                if (source.inFlight || source.failed || source.isExhausted()) {
+                    continue;
+                }
+                int share = (int) Math.ceil(target * source.effectiveWeight() / totalWeight);
+                if (source.buffer.size() < share) {
+                    issue(source);
+                }
+            }
+        }
+        if (calls.isEmpty()) {
+            Source best = mayFetch && buffered < target ? bestFetchable() : null;
+            if (best != null) {
+                //Every source got its share but duplicates kept the page short, go again
+                issue(best);
+            } else {
+                deal();
+            }
+        }
+    }
+
+    private Source bestFetchable() {
+        Source best = null;
+        for (Source source : sources) {
+            if (source.failed || source.isExhausted()) {
+                continue;
+            }
+            if (best == null || source.effectiveWeight() > best.effectiveWeight()) {
+                best = source;
+            }
+        }
+        return best;
+    }
+
+    private void issue(Source source) {
+        int page = source.nextPage++;
+        source.inFlight = true;
+        requestsIssued++;
+        requestsForPage++;
+        Call<MovieResponse> call = source.request.create(page);
+        calls.add(call);
+        call.enqueue(new Callback<MovieResponse>() {
+            @Override
+            public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
+                calls.remove(call);
+                source.inFlight = false;
+                if (response.isSuccessful() && response.body() != null) {
+                    onPage(source, page, response.body());
+                } else if (response.code() == 422) {
+                    //TMDB answers 422 past the last page it will serve
+                    source.totalPages = page - 1;
+                } else {
+                    //Anything else, a 401 or 404 included, says nothing about how many pages are left
+                    onTransientError(source, page, "HTTP " + response.code() + " - " + response.message());
+                }
+                pump();
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
+                if (call.isCanceled()) {
+                    return;
+                }
+                calls.remove(call);
+                source.inFlight = false;
+                onTransientError(source, page, t.getMessage());
+                pump();
+            }
+        });
+    }
+
+    private void onPage(Source source, int page, MovieResponse body) {
+        List<Movie> movies = body.getMovies();
+        if (movies == null || movies.isEmpty()) {
+            source.totalPages = page - 1;
+            return;
+        }
+        if (body.getTotalPages() > 0) {
+            source.totalPages = body.getTotalPages();
+        }
+        int unique = 0;
+        for (Movie movie : MovieStore.updateAll(movies)) {
+            if (swipedFilter != null && swipedFilter.contains(movie.getId())) {
+                continue;
+            }
+            if (dealtIds.add(movie.getId())) {
+                source.buffer.add(movie);
+                unique++;
+            }
+        }
+        double pageYield = (double) unique / movies.size();
+        source.yield = YIELD_SMOOTHING * source.yield + (1 - YIELD_SMOOTHING) * pageYield;
+        Log.d(TAG, source.name + " page " + page + ": " + unique + "/" + movies.size() + " new, yield " + source.yield);
+    }
+
+    //Retried on the next deck page rather than spinning on a failing network now
+    private void onTransientError(Source source, int page, String message) {
+        source.nextPage = page;
+        source.failed = true;
+        Log.e(TAG, "Fetching " + source.name + " failed: " + message);
+    }
+
+    //Smooth weighted round robin over the sources that have something buffered
+    private void deal() {
+        List<Movie> page = new ArrayList<>(target);
+        for (Source source : sources) {
+            source.current = 0;
+        }
+        while (page.size() < target) {
+            Source best = null;
+            double total = 0;
+            for (Source source : sources) {
+                if (source.buffer.isEmpty()) {
+                    continue;
+                }
+                source.current += source.weight;
+                total += source.weight;
+                if (best == null || source.current > best.current) {
+                    best = source;
+                }
+            }
+            if (best == null) {
+                break;
+            }
+            best.current -= total;
+            page.add(best.buffer.poll());
+        }
+        for (Source source : sources) {
+            source.failed = false;
+        }
+        Listener delivered = listener;
+        listener = null;
+        Log.d(TAG, "Dealt " + page.size() + " movies after " + requestsIssued + " requests");
+        delivered.onBlended(page);
+        if (listener == null && !waiting.isEmpty()) {
+            next(waitingTargets.poll(), waiting.poll());
+        }
+    }
+
+    private static class Source {
+        final String name;
+        final double weight;
+        final PageRequest request;
+        final ArrayDeque<Movie> buffer = new ArrayDeque<>();
+        double yield = 1.0;
+        double current;
+        int nextPage = 1;
+        int totalPages = Integer.MAX_VALUE;
+        boolean inFlight = false;
+        //Failed during the current deck page, left alone until the next one
+        boolean failed = false;
+
+        Source(String name, double weight, PageRequest request) {
+            this.name = name;
+            this.weight = weight;
+            this.request = request;
+        }
+
+        double effectiveWeight() {
+            return weight * Math.max(MIN_YIELD, yield);
+        }
+
+        boolean isExhausted() {
+            return nextPage > totalPages;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.cineswipe;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.List;
+
+//Keeps the card deck topped up: the low watermark grows with swipe speed and fetch latency,
+//and up to MAX_CONCURRENT_PAGES pages are requested ahead. Sources (DeckBlender,
+//GenreDiscoveryScheduler) keep their own page cursors and retry their own failed pages,
+//so this only decides when to ask for the next deck page.
+//All methods must be called on the main thread.
+public class DeckPrefetcher {
+    private static final String TAG = "DeckPrefetcher";
+    private static final int MIN_LOW_WATERMARK = 5;
+    private static final int MAX_CONCURRENT_PAGES = 2;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final long DEFAULT_FETCH_LATENCY_MS = 1500;
+    private static final long DEFAULT_SWIPE_INTERVAL_MS = 2000;
+    //Gaps longer than this are the user pausing, not their swipe speed
+    private static final long MAX_SWIPE_INTERVAL_MS = 10000;
+    private static final long RETRY_DELAY_MS = 2000;
+    private static final long MAX_RETRY_DELAY_MS = 30000;
+    private static final double SMOOTHING = 0.3;
+
+    public interface PageLoader {
+        void loadPage(PageCallback callback);
+
+        //Cards still ahead of the top card in the deck
+        int getRemainingCards();
+    }
+
+    public interface PageCallback {
+        //An empty list means the source has run out of pages
+        void onPageLoaded(List<Movie> movies);
+        void onPageFailed();
+    }
+
+    private final PageLoader loader;
+    private final CachePolicy.Clock clock;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private int inFlightPages = 0;
+    private boolean started = false;
+    private boolean exhausted = false;
+    private boolean stopped = false;
+    private int consecutiveFailures = 0;
+    private boolean retryPending = false;
+    private long lastSwipeAt = 0;
+    private double swipeIntervalMs = DEFAULT_SWIPE_INTERVAL_MS;
+    private double fetchLatencyMs = DEFAULT_FETCH_LATENCY_MS;
+    private double pageSize = DEFAULT_PAGE_SIZE;
+
+    private final Runnable retryRunnable = () -> {
+        retryPending = false;
+        maybeFetch();
+    };
+
+    public DeckPrefetcher(PageLoader loader) {
+        this(loader, SystemClock::elapsedRealtime);
+    }
+
+    DeckPrefetcher(PageLoader loader, CachePolicy.Clock clock) {
+        this.loader = loader;
+        this.clock = clock;
+    }
+
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        maybeFetch();
+    }
+
+    public void stop() {
+        stopped = true;
+        retryPending = false;
+        handler.removeCallbacks(retryRunnable);
+    }
+
+    public void onCardSwiped() {
+        long now = clock.now();
+        if (lastSwipeAt > 0) {
+            long interval = now - lastSwipeAt;
+            //A speed-up counts at once, the deck can run dry within one fetch; slowing down eases off
+            if (interval < swipeIntervalMs) {
+                swipeIntervalMs = interval;
+            } else if (interval < MAX_SWIPE_INTERVAL_MS) {
+                swipeIntervalMs = SMOOTHING * interval + (1 - SMOOTHING) * swipeIntervalMs;
+            }
+        }
+        lastSwipeAt = now;
+        maybeFetch();
+    }
+
+    //Call when cards are rewound or the deck is replaced
+    public void onDeckChanged() {
+        maybeFetch();
+    }
+
+    public boolean isLoading() {
+        return inFlightPages > 0;
+    }
+
+    int getLowWatermark() {
+        //Cards the user gets through while one page is loading, plus a fixed margin
+        double swipesPerFetch = fetchLatencyMs / Math.max(1, swipeIntervalMs);
+        return MIN_LOW_WATERMARK + (int) Math.ceil(swipesPerFetch);
+    }
+
+    private void maybeFetch() {
+        if (!started || stopped || retryPending) {
+            return;
+        }
+        int lowWatermark = getLowWatermark();
+        while (!exhausted && inFlightPages < MAX_CONCURRENT_PAGES
+                && loader.getRemainingCards() + inFlightPages * pageSize < lowWatermark) {
+            issue();
+        }
+    }
+
+    private void issue() {
+        inFlightPages++;
+        long requestedAt = clock.now();
+        Log.d(TAG, "Prefetching a page with " + loader.getRemainingCards() + " cards left");
+
+        loader.loadPage(new PageCallback() {
+            private boolean done = false;
+
+            //Call after the movies have been added to the deck
+            @Override
+            public void onPageLoaded(List<Movie> movies) {
+                if (done) return;
+                done = true;
+                inFlightPages--;
+                consecutiveFailures = 0;
+                long latency = clock.now() - requestedAt;
+                fetchLatencyMs = SMOOTHING * latency + (1 - SMOOTHING) * fetchLatencyMs;
+
+                int count = movies != null ? movies.size() : 0;
+                if (count == 0) {
+                    exhausted = true;
+                    return;
+                }
+                pageSize = SMOOTHING * count + (1 - SMOOTHING) * pageSize;
+                maybeFetch();
+            }
+
+            @Override
+            public void onPageFailed() {
+                if (done) return;
+                done = true;
+                inFlightPages--;
+                consecutiveFailures++;
+                //Hold off all fetching until the backoff runs out, even on swipes
+                retryPending = true;
+                long delay = Math.min(MAX_RETRY_DELAY_MS, RETRY_DELAY_MS << Math.min(consecutiveFailures - 1, 4));
+                handler.removeCallbacks(retryRunnable);
+                handler.postDelayed(retryRunnable, delay);
+            }
+        });
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.cineswipe;
+
+import android.content.Context;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.util.Log;
+import com.yuyakaido.android.cardstackview.CardStackLayoutManager;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//The deck as the user left it: the cards with the top position, each source's page cursor and the ids
+//already dealt. Saved in onStop, kept in memory for a warm return and written to filesDir for a cold one,
+//and read back synchronously in onCreate so the same card is on top in the first frame
+public class DeckSnapshot {
+    private static final String TAG = "DeckSnapshot";
+    private static final int FILE_VERSION = 1;
+    //Trending and discover results move on within a day, older cursors would skip or repeat movies
+    private static final long MAX_AGE_MS = 12 * 60 * 60 * 1000L;
+
+    private static final Map<String, DeckSnapshot> latest = new HashMap<>();
+    //Snapshot files only; MovieDatabase's executor is for the database
+    private static final ExecutorService fileExecutor = Executors.newSingleThreadExecutor();
+
+    //Where one paged source stood, with whatever it had fetched but not yet dealt
+    public static class Cursor {
+        final String name;
+        final int nextPage;
+        final int totalPages;
+        final double yield;
+        final List<Movie> buffer;
+
+        public Cursor(String name, int nextPage, int totalPages, double yield, List<Movie> buffer) {
+            this.name = name;
+            this.nextPage = nextPage;
+            this.totalPages = totalPages;
+            this.yield = yield;
+            this.buffer = buffer;
+        }
+    }
+
+    //What the deck was built from, e.g. the genres; a snapshot of a different deck is not restored
+    private final String deckKey;
+    private final long savedAt;
+    private final List<Movie> cards;
+    private final int topPosition;
+    private final List<Cursor> cursors;
+    private final Set<String> dealtIds;
+
+    public DeckSnapshot(String deckKey, List<Movie> cards, int topPosition, List<Cursor> cursors, Set<String> dealtIds) {
+        this(deckKey, System.currentTimeMillis(), new ArrayList<>(cards), topPosition,
+                new ArrayList<>(cursors), new HashSet<>(dealtIds));
+    }
+
+    private DeckSnapshot(String deckKey, long savedAt, List<Movie> cards, int topPosition,
+                         List<Cursor> cursors, Set<String> dealtIds) {
+        this.deckKey = deckKey;
+        this.savedAt = savedAt;
+        this.cards = cards;
+        this.topPosition = topPosition;
+        this.cursors = cursors;
+        this.dealtIds = dealtIds;
+    }
+
+    public String getDeckKey() {
+        return deckKey;
+    }
+
+    public List<Cursor> getCursors() {
+        return cursors;
+    }
+
+    public Set<String> getDealtIds() {
+        return dealtIds;
+    }
+
+    //Puts the cards back with the same one on top. Cards swiped since in the other deck are left out,
+    //false when none are left to show
+    public boolean restoreInto(MovieCardAdapter adapter, CardStackLayoutManager manager, SeenMovieFilter swipedFilter) {
+        int top = Math.min(topPosition, cards.size());
+        List<Movie> deck = new ArrayList<>(cards.subList(0, top));
+        List<Movie> upcoming = swipedFilter.filterUnseen(cards.subList(top, cards.size()));
+        if (upcoming.isEmpty()) {
+            return false;
+        }
+        deck.addAll(upcoming);
+        adapter.setMovies(MovieStore.internAll(deck));
+        manager.setTopPosition(top);
+        return true;
+    }
+
+    //A deck with nothing left to show is forgotten rather than saved.
+    //Encoded here, on the thread that owns the movies, so the file thread never reads a Movie being changed
+    public static void save(Context context, String name, DeckSnapshot snapshot) {
+        File file = fileFor(context, name);
+        boolean empty = snapshot.topPosition >= snapshot.cards.size();
+        synchronized (latest) {
+            latest.put(name, empty ? null : snapshot);
+        }
+        byte[] bytes = empty ? null : encode(snapshot);
+        if (!empty && bytes == null) {
+            return;
+        }
+        fileExecutor.execute(() -> {
+            if (empty) {
+                if (file.exists() && !file.delete()) {
+                    Log.w(TAG, "Could not delete " + file);
+                }
+            } else {
+                write(file, bytes);
+            }
+        });
+    }
+
+    //Synchronous, meant for onCreate: the in-memory copy if the process survived, else the file.
+    //Null when there is none, it is too old, or it was saved for another deckKey
+    public static DeckSnapshot restore(Context context, String name, String deckKey) {
+        long start = SystemClock.elapsedRealtime();
+        DeckSnapshot snapshot;
+        boolean warm;
+        synchronized (latest) {
+            warm = latest.containsKey(name);
+            snapshot = latest.get(name);
+        }
+        if (!warm) {
+            //The one deliberate main-thread read: the first frame needs the top card, and the file is a few KB
+            StrictMode.ThreadPolicy policy = StrictMode.allowThreadDiskReads();
+            try {
+                snapshot = read(fileFor(context, name));
+            } finally {
+                StrictMode.setThreadPolicy(policy);
+            }
+        }
+        if (snapshot == null || System.currentTimeMillis() - snapshot.savedAt > MAX_AGE_MS
+                || (deckKey != null && !deckKey.equals(snapshot.deckKey))) {
+            return null;
+        }
+        Log.d(TAG, "Restored " + name + " deck, " + snapshot.cards.size() + " cards, from "
+                + (warm ? "memory" : "disk") + " in " + (SystemClock.elapsedRealtime() - start) + "ms");
+        return snapshot;
+    }
+
+    private static File fileFor(Context context, String name) {
+        return new File(context.getApplicationContext().getFilesDir(), "deck_" + name + ".snapshot");
+    }
+
+    private static byte[] encode(DeckSnapshot snapshot) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes);
+             MovieBinaryCodec.Encoder encoder = new MovieBinaryCodec.Encoder()) {
+            out.writeInt(FILE_VERSION);
+            out.writeLong(snapshot.savedAt);
+            out.writeUTF(snapshot.deckKey);
+            out.writeInt(snapshot.topPosition);
+            writeMovies(out, snapshot.cards, encoder);
+            out.writeInt(snapshot.cursors.size());
+            for (Cursor cursor : snapshot.cursors) {
+                out.writeUTF(cursor.name);
+                out.writeInt(cursor.nextPage);
+                out.writeInt(cursor.totalPages);
+                out.writeDouble(cursor.yield);
+                writeMovies(out, cursor.buffer, encoder);
+            }
+            out.writeInt(snapshot.dealtIds.size());
+            for (String id : snapshot.dealtIds) {
+                out.writeUTF(id);
+            }
+        } catch (IOException e) {
+            //Nothing underneath can fail, but writeUTF refuses strings over 64KB
+            Log.w(TAG, "Encoding deck snapshot failed", e);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void write(File file, byte[] bytes) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            Log.w(TAG, "Saving deck snapshot failed", e);
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Could not replace " + file);
+        }
+    }
+
+    private static DeckSnapshot read(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != FILE_VERSION) {
+                return null;
+            }
+            long savedAt = in.readLong();
+            String deckKey = in.readUTF();
+            int topPosition = in.readInt();
+            List<Movie> cards = readMovies(in);
+            int cursorCount = in.readInt();
+            List<Cursor> cursors = new ArrayList<>();
+            for (int i = 0; i < cursorCount; i++) {
+                cursors.add(new Cursor(in.readUTF(), in.readInt(), in.readInt(), in.readDouble(), readMovies(in)));
+            }
+            int dealtCount = in.readInt();
+            Set<String> dealtIds = new HashSet<>();
+            for (int i = 0; i < dealtCount; i++) {
+                dealtIds.add(in.readUTF());
+            }
+            return new DeckSnapshot(deckKey, savedAt, cards, topPosition, cursors, dealtIds);
+        } catch (IOException e) {
+            Log.w(TAG, "Unreadable " + file + ", starting a new deck", e);
+            return null;
+        }
+    }
+
+    private static void writeMovies(DataOutputStream out, List<Movie> movies, MovieBinaryCodec.Encoder encoder)
+            throws IOException {
+        if (movies.isEmpty()) {
+            out.writeInt(0);
+            return;
+        }
+        byte[] payload = encoder.encodeList(movies);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    private static List<Movie> readMovies(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == 0) {
+            return Collections.emptyList();
+        }
+        if (length < 0) {
+            throw new IOException("Bad movie list length " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return MovieBinaryCodec.decodeList(payload);
+    }
+}
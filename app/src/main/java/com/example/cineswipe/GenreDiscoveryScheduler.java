@@ -0,0 +1,329 @@
+package com.example.cineswipe;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+//Runs discover/movie over the selected genres and their pairs with a concurrency cap,
+//best expected yield first, and stops once enough unseen movies have been collected
+public class GenreDiscoveryScheduler {
+    private static final String TAG = "GenreDiscovery";
+    public static final int DEFAULT_MAX_CONCURRENT = 4;
+    //Starting guess for the share of unseen movies per page; pairs mostly overlap their single genres
+    private static final double SINGLE_GENRE_PRIOR = 1.0;
+    private static final double GENRE_PAIR_PRIOR = 0.5;
+    private static final double YIELD_SMOOTHING = 0.5;
+
+    private final ApiService apiService;
+    private final String apiKey;
+    private final int maxConcurrent;
+    //Movies already in this session's deck
+    private final Set<String> seenIds;
+    //Movies swiped in any session, optional
+    private SeenMovieFilter swipedFilter;
+    private final List<Combination> combinations = new ArrayList<>();
+    private Run current;
+    //Runs asked for while another one holds the combinations, served in order
+    private final ArrayDeque<Run> waiting = new ArrayDeque<>();
+    private int requestsIssued = 0;
+    private int moviesDelivered = 0;
+
+    public interface Listener {
+        //Called once per discover() with the merged, deduplicated movies (possibly empty)
+        void onMoviesDiscovered(List<Movie> movies);
+    }
+
+    public GenreDiscoveryScheduler(ApiService apiService, String apiKey, List<String> genres,
+                                   Set<String> seenIds, int maxConcurrent) {
+        this.apiService = apiService;
+        this.apiKey = apiKey;
+        this.seenIds = seenIds;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+
+        for (String genre : genres) {
+            combinations.add(new Combination(genre, SINGLE_GENRE_PRIOR));
+        }
+        for (int i = 0; i < genres.size(); i++) {
+            for (int j = i + 1; j < genres.size(); j++) {
+                combinations.add(new Combination(genres.get(i) + "," + genres.get(j), GENRE_PAIR_PRIOR));
+            }
+        }
+    }
+
+    public GenreDiscoveryScheduler(ApiService apiService, String apiKey, List<String> genres, Set<String> seenIds) {
+        this(apiService, apiKey, genres, seenIds, DEFAULT_MAX_CONCURRENT);
+    }
+
+    //Swiped movies are dropped before they count towards a page's yield,
+    //so a user who has seen most of a genre gets more pages rather than short decks
+    public void setSwipedFilter(SeenMovieFilter swipedFilter) {
+        this.swipedFilter = swipedFilter;
+    }
+
+    //Collects at least targetUnique unseen movies unless every combination runs dry first.
+    //A run started while another is going would find every combination in flight and come back empty,
+    //so it waits for its turn instead
+    public void discover(int targetUnique, Listener listener) {
+        Run run = new Run(targetUnique, listener);
+        if (current != null) {
+            waiting.add(run);
+            return;
+        }
+        current = run;
+        run.pump();
+    }
+
+    public void cancel() {
+        if (current != null) {
+            current.cancel();
+            current = null;
+        }
+        waiting.clear();
+    }
+
+    public boolean isExhausted() {
+        for (Combination combination : combinations) {
+            if (!combination.isExhausted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getRequestsIssued() {
+        return requestsIssued;
+    }
+
+    public int getMoviesDelivered() {
+        return moviesDelivered;
+    }
+
+    //Every merged movie is delivered, so only the page cursors are worth keeping
+    public List<DeckSnapshot.Cursor> getCursors() {
+        List<DeckSnapshot.Cursor> cursors = new ArrayList<>(combinations.size());
+        for (Combination combination : combinations) {
+            int nextPage = combination.inFlight ? combination.nextPage - 1 : combination.nextPage;
+            cursors.add(new DeckSnapshot.Cursor(combination.genres, nextPage, combination.totalPages,
+                    combination.expectedYield, Collections.emptyList()));
+        }
+        return cursors;
+    }
+
+    public void restoreCursors(List<DeckSnapshot.Cursor> cursors) {
+        for (DeckSnapshot.Cursor cursor : cursors) {
+            for (Combination combination : combinations) {
+                if (combination.genres.equals(cursor.name)) {
+                    combination.nextPage = cursor.nextPage;
+                    combination.totalPages = cursor.totalPages;
+                    combination.expectedYield = cursor.yield;
+                }
+            }
+        }
+    }
+
+    //The combinations the next discover() starts with, in the order it picks them. Lets a background
+    //job warm the HTTP cache with exactly the pages the deck will ask for
+    public List<String> peekCombinations() {
+        List<Combination> candidates = new ArrayList<>();
+        for (Combination combination : combinations) {
+            if (!combination.inFlight && !combination.isExhausted()) {
+                candidates.add(combination);
+            }
+        }
+        //Stable, so ties keep list order like nextCombination()
+        Collections.sort(candidates, (a, b) -> Double.compare(b.expectedYield, a.expectedYield));
+        List<String> genres = new ArrayList<>();
+        for (int i = 0; i < candidates.size() && i < maxConcurrent; i++) {
+            genres.add(candidates.get(i).genres);
+        }
+        return genres;
+    }
+
+    private Combination nextCombination() {
+        Combination best = null;
+        for (Combination combination : combinations) {
+            if (combination.inFlight || combination.isExhausted()) {
+                continue;
+            }
+            if (best == null || combination.expectedYield > best.expectedYield) {
+                best = combination;
+            }
+        }
+        return best;
+    }
+
+    private static class Combination {
+        final String genres;
+        double expectedYield;
+        int nextPage = 1;
+        int totalPages = Integer.MAX_VALUE;
+        boolean inFlight = false;
+
+        Combination(String genres, double prior) {
+            this.genres = genres;
+            this.expectedYield = prior;
+        }
+
+        boolean isExhausted() {
+            return nextPage > totalPages;
+        }
+    }
+
+    private class Run {
+        private final int targetUnique;
+        private final Listener listener;
+        private final Map<String, Movie> merged = new LinkedHashMap<>();
+        private final Map<Call<MovieResponse>, Combination> calls = new LinkedHashMap<>();
+        private boolean finished = false;
+
+        Run(int targetUnique, Listener listener) {
+            this.targetUnique = targetUnique;
+            this.listener = listener;
+        }
+
+        void pump() {
+            while (!finished && calls.size() < maxConcurrent) {
+                Combination combination = nextCombination();
+                if (combination == null) {
+                    break;
+                }
+                issue(combination);
+            }
+            if (!finished && calls.isEmpty()) {
+                finish();
+            }
+        }
+
+        private void issue(Combination combination) {
+            int page = combination.nextPage++;
+            combination.inFlight = true;
+            requestsIssued++;
+
+            Call<MovieResponse> call = apiService.getMoviesByGenres(apiKey, combination.genres, page);
+            calls.put(call, combination);
+            call.enqueue(new Callback<MovieResponse>() {
+                @Override
+                public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
+                    if (isReleased(call)) {
+                        return;
+                    }
+                    if (response.isSuccessful() && response.body() != null) {
+                        calls.remove(call);
+                        combination.inFlight = false;
+                        onPage(combination, page, response.body());
+                        pump();
+                    } else if (response.code() == 422) {
+                        //TMDB answers 422 past the last page it will serve
+                        calls.remove(call);
+                        combination.inFlight = false;
+                        combination.totalPages = page - 1;
+                        pump();
+                    } else {
+                        //Anything else, a 401 included, says nothing about how many pages are left
+                        onTransientError(call, combination, page, "HTTP " + response.code() + " - " + response.message());
+                    }
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
+                    if (isReleased(call)) {
+                        return;
+                    }
+                    onTransientError(call, combination, page, t.getMessage());
+                }
+            });
+        }
+
+        //A released call's page was handed back already, a callback that was queued before the release is dropped
+        private boolean isReleased(Call<MovieResponse> call) {
+            return call.isCanceled() || !calls.containsKey(call);
+        }
+
+        private void onTransientError(Call<MovieResponse> call, Combination combination, int page, String message) {
+            calls.remove(call);
+            combination.inFlight = false;
+            combination.nextPage = page;
+            Log.e(TAG, "Network call failed: " + message);
+            if (!finished && calls.isEmpty()) {
+                //Don't spin on a failing network, hand back whatever was merged so far
+                finish();
+            }
+        }
+
+        private void onPage(Combination combination, int page, MovieResponse body) {
+            List<Movie> movies = body.getMovies();
+            if (movies == null || movies.isEmpty()) {
+                combination.totalPages = page - 1;
+                return;
+            }
+            if (body.getTotalPages() > 0) {
+                combination.totalPages = body.getTotalPages();
+            }
+
+            int unique = 0;
+            for (Movie movie : movies) {
+                if (!seenIds.contains(movie.getId()) && !merged.containsKey(movie.getId())
+                        && (swipedFilter == null || !swipedFilter.contains(movie.getId()))) {
+                    merged.put(movie.getId(), movie);
+                    unique++;
+                }
+            }
+            double pageYield = (double) unique / movies.size();
+            combination.expectedYield = YIELD_SMOOTHING * combination.expectedYield
+                    + (1 - YIELD_SMOOTHING) * pageYield;
+
+            if (merged.size() >= targetUnique) {
+                finish();
+            }
+        }
+
+        //Hands a reserved page back so the combination resumes from it next time
+        private void release(Call<MovieResponse> call) {
+            Combination combination = calls.remove(call);
+            call.cancel();
+            combination.inFlight = false;
+            combination.nextPage--;
+        }
+
+        private void releaseAll() {
+            for (Call<MovieResponse> call : new ArrayList<>(calls.keySet())) {
+                release(call);
+            }
+        }
+
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            releaseAll();
+            current = null;
+
+            seenIds.addAll(merged.keySet());
+            moviesDelivered += merged.size();
+            Log.d(TAG, "Delivered " + merged.size() + " movies, " + requestsIssued + " requests so far");
+            listener.onMoviesDiscovered(new ArrayList<>(merged.values()));
+            if (current == null && !waiting.isEmpty()) {
+                current = waiting.poll();
+                current.pump();
+            }
+        }
+
+        void cancel() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            releaseAll();
+        }
+    }
+}
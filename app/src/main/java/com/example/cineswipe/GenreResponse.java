@@ -5,6 +5,13 @@ import java.util.List;
 public class GenreResponse {
     private List<Genre> genres;
 
+    public GenreResponse() {
+    }
+
+    GenreResponse(List<Genre> genres) {
+        this.genres = genres;
+    }
+
     public List<Genre> getGenres() {
         return genres;
     }
@@ -13,6 +20,14 @@ public class GenreResponse {
         private int id;
         private String name;
 
+        public Genre() {
+        }
+
+        Genre(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
         public int getId() {
             return id;
         }
@@ -45,7 +45,7 @@ public class GenreSelectionActivity extends AppCompatActivity {
         databaseHelper = new DatabaseHelper();
         selectedGenreIds = new HashSet<>();
         genreLayout = findViewById(R.id.genreLayout);
-        apiService = ApiClient.getRetrofitInstance().create(ApiService.class);
+        apiService = ApiClient.getApiService();
 
         fetchGenresFromApi();
     }
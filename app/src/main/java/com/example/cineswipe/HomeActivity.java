@@ -7,11 +7,7 @@ import android.text.TextUtils;
 import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FieldValue;
-import com.google.firebase.firestore.FirebaseFirestore;
 import com.yuyakaido.android.cardstackview.CardStackLayoutManager;
 import com.yuyakaido.android.cardstackview.CardStackListener;
 import com.yuyakaido.android.cardstackview.CardStackView;
@@ -23,9 +19,6 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
 
 public class HomeActivity extends AppCompatActivity implements CardStackListener {
@@ -34,29 +27,64 @@ public class HomeActivity extends AppCompatActivity implements CardStackListener
     private CardStackLayoutManager manager;
     private MovieCardAdapter movieCardAdapter;
     private List<Movie> movieList;
-    private List<Movie> likedMovies; // Declare the likedMovies list here
     private static final String API_KEY = Constants.API_KEY;
     private static final String TAG = "HomeActivity";
-    private int currentPage = 1;
     private List<String> userGenres;
     private Set<String> addedMovieIds = new HashSet<>();
+    private static final int DECK_PAGE_SIZE = 20;
+    private GenreDiscoveryScheduler discoveryScheduler;
+    private DeckPrefetcher deckPrefetcher;
+    private DeckBlender randomBlender;
+    private SwipeRanker swipeRanker;
+    private SeenMovieFilter seenMovieFilter;
+    private SwipeJournal swipeJournal;
+    static final String SNAPSHOT_NAME = "home";
+    static final String RANDOM_DECK_PREFIX = "random:";
+    //Picked once per deck so the discover pages don't overlap, kept across a restore
+    private String randomSort;
+    //Cursors from the restored snapshot, applied once the scheduler or blender is created
+    private List<DeckSnapshot.Cursor> restoredCursors = Collections.emptyList();
+    //The two cards under the top one plus three more
+    private static final int DECK_PRELOAD_CARDS = 5;
+    private PosterPreloader posterPreloader;
+    //onCreate to the first bound card, warm or cold; see StartupTrace
+    static final String FIRST_CARD_SPAN = TAG + " first card";
+    private boolean firstCardShown = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTrace.begin(FIRST_CARD_SPAN);
         setContentView(R.layout.activity_home);
 
-        likedMovies = new ArrayList<>();
+        swipeRanker = SwipeRanker.getInstance(this);
+        seenMovieFilter = SeenMovieFilter.getInstance(this);
+        swipeJournal = SwipeJournal.getInstance(this);
         initializeCardStackView();
 
         Intent intent = getIntent();
         userGenres = intent.getStringArrayListExtra("USER_GENRES");
-        if (userGenres != null && !userGenres.isEmpty()) {
-            fetchMoviesByGenres(userGenres, currentPage);
-        } else {
+        if (userGenres == null || userGenres.isEmpty()) {
             Log.d(TAG, "No genres provided, fetching random movies instead.");
-            fetchRandomMovies(currentPage);
         }
+        restoreDeck();
+
+        deckPrefetcher = new DeckPrefetcher(new DeckPrefetcher.PageLoader() {
+            @Override
+            public void loadPage(DeckPrefetcher.PageCallback callback) {
+                if (userGenres != null && !userGenres.isEmpty()) {
+                    fetchMoviesByGenres(userGenres, callback);
+                } else {
+                    fetchRandomMovies(callback);
+                }
+            }
+
+            @Override
+            public int getRemainingCards() {
+                return movieList.size() - manager.getTopPosition();
+            }
+        });
+        deckPrefetcher.start();
     }
 
     private void initializeCardStackView() {
@@ -64,6 +92,7 @@ public class HomeActivity extends AppCompatActivity implements CardStackListener
         manager = new CardStackLayoutManager(this, this);
         movieList = new ArrayList<>();
         movieCardAdapter = new MovieCardAdapter(this, movieList);
+        movieCardAdapter.setOnFirstBind(() -> StartupTrace.end(FIRST_CARD_SPAN));
 
         //the card stack manager config
         manager.setStackFrom(StackFrom.Top);
@@ -78,143 +107,172 @@ public class HomeActivity extends AppCompatActivity implements CardStackListener
 
         cardStackView.setLayoutManager(manager);
         cardStackView.setAdapter(movieCardAdapter);
+        posterPreloader = new PosterPreloader(this, movieCardAdapter, movieCardAdapter::getMovieAt,
+                MovieCardAdapter.POSTER_OPTIONS, DECK_PRELOAD_CARDS);
     }
 
-    private void fetchMoviesByGenres(List<String> genres, int page) {
-        if (genres == null || genres.isEmpty()) {
-            Log.e(TAG, "No genres provided for fetching movies.");
+    //Before any network call, so the card the user left on is in the first frame
+    private void restoreDeck() {
+        boolean genreMode = userGenres != null && !userGenres.isEmpty();
+        DeckSnapshot snapshot = DeckSnapshot.restore(this, SNAPSHOT_NAME, genreMode ? genreDeckKey() : null);
+        if (snapshot == null || (!genreMode && !snapshot.getDeckKey().startsWith(RANDOM_DECK_PREFIX))) {
             return;
         }
-
-        ApiService apiService = ApiClient.getRetrofitInstance().create(ApiService.class);
-
-        //Handle single genre case
-        if (genres.size() == 1) {
-            Call<MovieResponse> call = apiService.getMoviesByGenres(API_KEY, genres.get(0), page);
-            fetchMoviesForGenres(call);
+        if (!snapshot.restoreInto(movieCardAdapter, manager, seenMovieFilter)) {
             return;
         }
+        addedMovieIds.addAll(snapshot.getDealtIds());
+        restoredCursors = snapshot.getCursors();
+        if (!genreMode) {
+            randomSort = snapshot.getDeckKey().substring(RANDOM_DECK_PREFIX.length());
+        }
+    }
 
-        List<String> genreCombinations = new ArrayList<>();
+    private String genreDeckKey() {
+        return "genres:" + TextUtils.join(",", userGenres);
+    }
 
-        genreCombinations.addAll(genres);
+    private void saveDeck() {
+        String deckKey;
+        List<DeckSnapshot.Cursor> cursors;
+        if (discoveryScheduler != null) {
+            deckKey = genreDeckKey();
+            cursors = discoveryScheduler.getCursors();
+        } else if (randomBlender != null) {
+            deckKey = RANDOM_DECK_PREFIX + randomSort;
+            cursors = randomBlender.getCursors();
+        } else {
+            //Nothing fetched since the restore, the restored cursors still stand
+            deckKey = userGenres != null && !userGenres.isEmpty() ? genreDeckKey() : RANDOM_DECK_PREFIX + randomSort;
+            cursors = restoredCursors;
+        }
+        DeckSnapshot.save(this, SNAPSHOT_NAME,
+                new DeckSnapshot(deckKey, movieList, manager.getTopPosition(), cursors, addedMovieIds));
+    }
 
-        for (int i = 0; i < genres.size(); i++) {
-            for (int j = i + 1; j < genres.size(); j++) {
-                genreCombinations.add(genres.get(i) + "," + genres.get(j));
-            }
+    private void fetchMoviesByGenres(List<String> genres, DeckPrefetcher.PageCallback callback) {
+        if (genres == null || genres.isEmpty()) {
+            Log.e(TAG, "No genres provided for fetching movies.");
+            callback.onPageLoaded(Collections.emptyList());
+            return;
         }
 
-        //Fetch movies for each genre combination
-        for (String genreCombination : genreCombinations) {
-            Call<MovieResponse> call = apiService.getMoviesByGenres(API_KEY, genreCombination, page);
-            fetchMoviesForGenres(call);
+        if (discoveryScheduler == null) {
+            ApiService apiService = ApiClient.getApiService();
+            discoveryScheduler = new GenreDiscoveryScheduler(apiService, API_KEY, genres, addedMovieIds);
+            discoveryScheduler.setSwipedFilter(seenMovieFilter);
+            discoveryScheduler.restoreCursors(restoredCursors);
         }
-    }
 
-    //Helper method to handle the API call and response
-    private void fetchMoviesForGenres(Call<MovieResponse> call) {
-        call.enqueue(new Callback<MovieResponse>() {
-            @Override
-            public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    List<Movie> newMovies = response.body().getMovies();
-                    for (Movie movie : newMovies) {
-
-                        if (!addedMovieIds.contains(movie.getId())) {
-                            addedMovieIds.add(movie.getId());
-                            movieCardAdapter.addMovie(movie);
-                        }
-                    }
-                    Log.d(TAG, "Fetched " + newMovies.size() + " movies");
-                } else {
-                    Log.e(TAG, "Error fetching movies: " + response.code() + " - " + response.message());
-                }
+        //Genre combinations keep their own page cursors, so each call just asks for another deck page
+        discoveryScheduler.discover(DECK_PAGE_SIZE, movies -> {
+            if (movies.isEmpty() && !discoveryScheduler.isExhausted()) {
+                callback.onPageFailed();
+                return;
             }
+            movies = MovieStore.updateAll(movies);
+            movieCardAdapter.addMoviesRanked(movies, manager.getTopPosition(), swipeRanker);
+            Log.d(TAG, "Fetched " + movies.size() + " movies in "
+                    + discoveryScheduler.getRequestsIssued() + " requests so far");
+            callback.onPageLoaded(movies);
+        });
+    }
 
-            @Override
-            public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
-                Log.e(TAG, "Network call failed: " + t.getMessage());
+    private void fetchRandomMovies(DeckPrefetcher.PageCallback callback) {
+        if (randomBlender == null) {
+            randomBlender = createRandomBlender();
+        }
+        randomBlender.next(DECK_PAGE_SIZE, movies -> {
+            if (movies.isEmpty() && !randomBlender.isExhausted()) {
+                Toast.makeText(HomeActivity.this, "Failed to fetch movies", Toast.LENGTH_SHORT).show();
+                callback.onPageFailed();
+                return;
             }
+            movieCardAdapter.addMoviesRanked(movies, manager.getTopPosition(), swipeRanker);
+            Log.d(TAG, "Fetched " + movies.size() + " random movies in "
+                    + randomBlender.getRequestsIssued() + " requests so far");
+            callback.onPageLoaded(movies);
         });
     }
 
-    private void fetchRandomMovies(int page) {
-        ApiService apiService = ApiClient.getRetrofitInstance().create(ApiService.class);
-
-        //Get a random sorting method
-        String[] sortingMethods = {
-                "popularity.desc",
-                "revenue.desc",
-                "vote_average.desc",
-                "primary_release_date.desc",
-                "vote_count.desc"
-        };
-        String randomSort = sortingMethods[(int) (Math.random() * sortingMethods.length)];
+    //Random discover leads, the curated lists keep the deck from feeling like one long query
+    private DeckBlender createRandomBlender() {
+        ApiService apiService = ApiClient.getApiService();
+
+        //Get a random sorting method, once per deck so the discover pages don't overlap
+        if (randomSort == null) {
+            String[] sortingMethods = {
+                    "popularity.desc",
+                    "revenue.desc",
+                    "vote_average.desc",
+                    "primary_release_date.desc",
+                    "vote_count.desc"
+            };
+            randomSort = sortingMethods[(int) (Math.random() * sortingMethods.length)];
+        }
+        String sort = randomSort;
+
+        DeckBlender blender = new DeckBlender(addedMovieIds, seenMovieFilter)
+                .addSource("discover " + sort, 3, page -> apiService.getRandomMovies(API_KEY, "en-US", page, sort))
+                .addSource("trending", 1, page -> apiService.getTrendingMovies(API_KEY, "en-US", page))
+                .addSource("top rated", 1, page -> apiService.getTopRatedMovies(API_KEY, "en-US", page))
+                .addSource("popular", 1, page -> apiService.getPopularMovies(API_KEY, "en-US", page));
+        blender.restoreCursors(restoredCursors);
+        return blender;
+    }
 
-        Call<MovieResponse> call = apiService.getRandomMovies(API_KEY, "en-US", page, randomSort);
 
-        call.enqueue(new Callback<MovieResponse>() {
-            @Override
-            public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    List<Movie> newMovies = response.body().getMovies();
-                    Collections.shuffle(newMovies);
-                    movieCardAdapter.addMovies(newMovies);
-                    Log.d(TAG, "Fetched " + newMovies.size() + " random movies");
-                } else {
-                    Log.e(TAG, "Error fetching random movies: " + response.code());
-                    Toast.makeText(HomeActivity.this, "Failed to fetch movies", Toast.LENGTH_SHORT).show();
-                }
-            }
+    @Override
+    protected void onStart() {
+        super.onStart();
+        posterPreloader.start();
+    }
 
-            @Override
-            public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
-                Log.e(TAG, "Network call failed: " + t.getMessage());
-                Toast.makeText(HomeActivity.this, "Network error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
-            }
-        });
+    @Override
+    protected void onStop() {
+        super.onStop();
+        posterPreloader.stop();
+        saveDeck();
+        swipeJournal.flushSoon();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        deckPrefetcher.stop();
+        if (discoveryScheduler != null) {
+            discoveryScheduler.cancel();
+        }
+        if (randomBlender != null) {
+            randomBlender.cancel();
+        }
+    }
 
     @Override
     public void onCardDragging(Direction direction, float ratio) {}
 
     @Override
     public void onCardSwiped(Direction direction) {
-        if (direction == Direction.Right) {
-            int currentMovieIndex = manager.getTopPosition() - 1;
-            if (currentMovieIndex >= 0 && currentMovieIndex < movieList.size()) {
-                Movie likedMovie = movieList.get(currentMovieIndex);
-                likedMovies.add(likedMovie);
-                saveLikedMovie(likedMovie);
-                Toast.makeText(this, "Liked!", Toast.LENGTH_SHORT).show();
-            }
+        int swipedIndex = manager.getTopPosition() - 1;
+        Movie swiped = swipedIndex >= 0 && swipedIndex < movieList.size() ? movieList.get(swipedIndex) : null;
+        if (swiped != null) {
+            seenMovieFilter.markSeen(swiped.getId());
+            swipeRanker.onSwiped(swiped, direction == Direction.Right);
+            swipeJournal.record(swiped.getId(), direction == Direction.Right);
+        }
+        if (direction == Direction.Right && swiped != null) {
+            Toast.makeText(this, "Liked!", Toast.LENGTH_SHORT).show();
         } else if (direction == Direction.Left) {
             Toast.makeText(this, "Passed", Toast.LENGTH_SHORT).show();
         }
-        if (manager.getTopPosition() == movieList.size() - 5) {
-            currentPage++;
-            if (userGenres != null && !userGenres.isEmpty()) {
-                fetchMoviesByGenres(userGenres, currentPage);
-            } else {
-                fetchRandomMovies(currentPage);
-            }
-        }
-    }
-
-    private void saveLikedMovie(Movie movie) {
-        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        db.collection("users").document(userId)
-                .update("likedMovies", FieldValue.arrayUnion(movie.getId()))
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "Liked movie added successfully"))
-                .addOnFailureListener(e -> Log.e(TAG, "Error adding liked movie", e));
+        deckPrefetcher.onCardSwiped();
+        cardStackView.post(() -> movieCardAdapter.trimSwiped(manager));
     }
 
     @Override
     public void onCardRewound() {
         Log.d(TAG, "onCardRewound: " + manager.getTopPosition());
+        deckPrefetcher.onDeckChanged();
     }
 
     @Override
@@ -225,6 +283,11 @@ public class HomeActivity extends AppCompatActivity implements CardStackListener
     @Override
     public void onCardAppeared(View view, int position) {
         Log.d(TAG, "onCardAppeared: " + position);
+        posterPreloader.preloadAfter(view.findViewById(R.id.moviePoster), position);
+        if (!firstCardShown) {
+            firstCardShown = true;
+            StartupTrace.mark("first card");
+        }
     }
     @Override
     public void onCardDisappeared(View view, int position) {
@@ -0,0 +1,148 @@
+package com.example.cineswipe;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import okhttp3.CacheControl;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+//Per-endpoint HTTP cache rules for the TMDB ApiService methods
+public class HttpCachePolicy {
+    private static final int MINUTE = 60;
+    private static final int HOUR = 60 * MINUTE;
+    private static final int DAY = 24 * HOUR;
+    private static final int MAX_STALE_DAYS = 30;
+    //CategoryRefreshWorker runs this often and warms the first discover pages, they stay fresh until its next run
+    static final int DISCOVER_MAX_AGE_HOURS = 6;
+
+    //Request Cache-Control that always goes to TMDB. Unlike no-cache it keeps the stored ETag,
+    //so an unchanged list comes back as a 304
+    public static final String REVALIDATE = "max-age=0";
+
+    private static final List<Rule> RULES = new ArrayList<>();
+
+    static {
+        //Path patterns are relative to the /3/ base path, checked in order
+        RULES.add(new Rule("genre/movie/list", 14 * DAY, true));
+        RULES.add(new Rule("trending/movie/day", 10 * MINUTE, true));
+        RULES.add(new Rule("movie/popular", HOUR, false));
+        RULES.add(new Rule("movie/upcoming", 6 * HOUR, false));
+        RULES.add(new Rule("movie/top_rated", DAY, false));
+        RULES.add(new Rule("discover/movie", DISCOVER_MAX_AGE_HOURS * HOUR, false));
+        RULES.add(new Rule("movie/\\d+/credits", 7 * DAY, false));
+        RULES.add(new Rule("movie/\\d+", DAY, false));
+    }
+
+    private HttpCachePolicy() {
+    }
+
+    //Returns the matching rule for the request url, or null when the server headers should be used as-is
+    static Rule ruleFor(HttpUrl url) {
+        String path = url.encodedPath();
+        int versionEnd = path.indexOf('/', 1);
+        if (versionEnd > 0) {
+            path = path.substring(versionEnd + 1);
+        }
+        for (Rule rule : RULES) {
+            if (rule.pattern.matcher(path).matches()) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    //Network interceptor: rewrites Cache-Control on 200 and 304 responses so revalidated entries keep the policy
+    public static Interceptor networkInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            if (!"GET".equals(request.method())
+                    || (!response.isSuccessful() && response.code() != 304)) {
+                return response;
+            }
+
+            Rule rule = ruleFor(request.url());
+            if (rule == null) {
+                return response;
+            }
+
+            CacheControl serverControl = response.cacheControl();
+            if (serverControl.noStore()) {
+                return response;
+            }
+            if (!rule.override && serverControl.maxAgeSeconds() > 0) {
+                return response;
+            }
+
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .header("Cache-Control", "public, max-age=" + rule.maxAgeSeconds)
+                    .build();
+        };
+    }
+
+    //Application interceptor: goes straight to the cache when offline and falls back to stale entries on I/O errors
+    public static Interceptor offlineInterceptor(Context context) {
+        Context appContext = context != null ? context.getApplicationContext() : null;
+        return chain -> {
+            Request request = chain.request();
+            if (!"GET".equals(request.method())) {
+                return chain.proceed(request);
+            }
+
+            if (appContext != null && !isNetworkAvailable(appContext)) {
+                return chain.proceed(staleRequest(request));
+            }
+
+            try {
+                return chain.proceed(request);
+            } catch (IOException e) {
+                Response cached = chain.proceed(staleRequest(request));
+                if (cached.code() == 504) {
+                    cached.close();
+                    throw e;
+                }
+                return cached;
+            }
+        };
+    }
+
+    private static Request staleRequest(Request request) {
+        return request.newBuilder()
+                .cacheControl(new CacheControl.Builder()
+                        .onlyIfCached()
+                        .maxStale(MAX_STALE_DAYS, TimeUnit.DAYS)
+                        .build())
+                .build();
+    }
+
+    private static boolean isNetworkAvailable(Context context) {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) {
+            return true;
+        }
+        NetworkInfo activeNetworkInfo = connectivityManager.getActiveNetworkInfo();
+        return activeNetworkInfo != null && activeNetworkInfo.isConnected();
+    }
+
+    static class Rule {
+        final Pattern pattern;
+        final int maxAgeSeconds;
+        //When true the policy wins over whatever max-age TMDB sends
+        final boolean override;
+
+        Rule(String pathPattern, int maxAgeSeconds, boolean override) {
+            this.pattern = Pattern.compile(pathPattern);
+            this.maxAgeSeconds = maxAgeSeconds;
+            this.override = override;
+        }
+    }
+}
@@ -5,7 +5,6 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Bundle;
 import android.widget.Toast;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -14,17 +13,15 @@ import com.google.firebase.FirebaseApp;
 import com.google.firebase.auth.FirebaseAuth;
 import java.util.ArrayList;
 import java.util.List;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements CategoryRefresher.Listener {
 
     private RecyclerView recyclerViewPopularMovies, recyclerViewTrendingMovies, recyclerViewTopRatedMovies, recyclerViewUpcomingMovies;
     private MovieHorizontalAdapter popularMovieHorizontalAdapter, trendingMovieHorizontalAdapter, topRatedMovieHorizontalAdapter, upcomingMovieHorizontalAdapter;
     private List<Movie> popularMovieList, trendingMovieList, topRatedMovieList, upcomingMovieList;
-    private PreferencesHelper preferencesHelper;
-    private static final long CACHE_EXPIRATION = 24 * 60 * 60 * 1000; // 24 hours in milliseconds
+    //Posters are small, a few past the screen edge cover a fling
+    private static final int ROW_PRELOAD_ITEMS = 4;
+    private final List<PosterPreloader> posterPreloaders = new ArrayList<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -40,8 +37,6 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        preferencesHelper = new PreferencesHelper(this);
-
         setContentView(R.layout.activity_main);
 
         //Initialize RecyclerViews
@@ -79,22 +74,16 @@ public class MainActivity extends AppCompatActivity {
         recyclerViewTopRatedMovies.setAdapter(topRatedMovieHorizontalAdapter);
         recyclerViewUpcomingMovies.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false));
         recyclerViewUpcomingMovies.setAdapter(upcomingMovieHorizontalAdapter);
+        attachPosterPreloader(recyclerViewPopularMovies, popularMovieHorizontalAdapter);
+        attachPosterPreloader(recyclerViewTrendingMovies, trendingMovieHorizontalAdapter);
+        attachPosterPreloader(recyclerViewTopRatedMovies, topRatedMovieHorizontalAdapter);
+        attachPosterPreloader(recyclerViewUpcomingMovies, upcomingMovieHorizontalAdapter);
 
 
-        // Load cached data first
+        //Cache first; every category that isn't fresh is revalidated once in the background
+        CategoryRefresher.getInstance(this).addListener(this);
         loadCachedData();
 
-        // Then fetch fresh data if network available
-        if (isNetworkAvailable()) {
-            fetchAllMovies();
-        }
-
-        //Fetch movies for each category
-        fetchPopularMovies();
-        fetchTrendingMovies();
-        fetchTopRatedMovies();
-        fetchUpcomingMovies();
-
         //Initialize Bottom Navigation
         BottomNavigationView bottomNavigationView = findViewById(R.id.bottom_navigation);
 
@@ -114,203 +103,111 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    private void loadCachedData() {
-        // Load cached data for each category
-        List<Movie> cachedPopular = preferencesHelper.getCachedMovies("popular");
-        List<Movie> cachedTrending = preferencesHelper.getCachedMovies("trending");
-        List<Movie> cachedTopRated = preferencesHelper.getCachedMovies("toprated");
-        List<Movie> cachedUpcoming = preferencesHelper.getCachedMovies("upcoming");
+    private void attachPosterPreloader(RecyclerView row, MovieHorizontalAdapter adapter) {
+        PosterPreloader preloader = new PosterPreloader(this, adapter, adapter::getMovieAt,
+                MovieHorizontalAdapter.POSTER_OPTIONS, ROW_PRELOAD_ITEMS);
+        preloader.attachTo(row);
+        posterPreloaders.add(preloader);
+    }
 
-        if (cachedPopular != null && !cachedPopular.isEmpty() && preferencesHelper.isCacheExpired("popular", CACHE_EXPIRATION)) {
-            popularMovieList.clear();
-            popularMovieList.addAll(cachedPopular);
-            popularMovieHorizontalAdapter.notifyDataSetChanged();
-            Toast.makeText(this, "Showing cached popular movies", Toast.LENGTH_SHORT).show();
+    //Rows are read and decoded by CacheHydrator off the main thread
+    private void loadCachedData() {
+        CacheHydrator hydrator = CacheHydrator.getInstance(this);
+        for (String category : CategoryRefresher.HOME_CATEGORIES) {
+            hydrator.loadCategory(category, (cachedMovies, state) -> showCachedCategory(category, cachedMovies, state));
         }
+    }
 
-        if (cachedTrending != null && !cachedTrending.isEmpty() && preferencesHelper.isCacheExpired("trending", CACHE_EXPIRATION)) {
-            trendingMovieList.clear();
-            trendingMovieList.addAll(cachedTrending);
-            trendingMovieHorizontalAdapter.notifyDataSetChanged();
-            Toast.makeText(this, "Showing cached trending movies", Toast.LENGTH_SHORT).show();
+    private void showCachedCategory(String category, List<Movie> cachedMovies, CachePolicy.State state) {
+        if (isDestroyed()) {
+            return;
         }
-
-        if (cachedTopRated != null && !cachedTopRated.isEmpty() && preferencesHelper.isCacheExpired("toprated", CACHE_EXPIRATION)) {
-            topRatedMovieList.clear();
-            topRatedMovieList.addAll(cachedTopRated);
-            topRatedMovieHorizontalAdapter.notifyDataSetChanged();
-            Toast.makeText(this, "Showing cached top-rated movies", Toast.LENGTH_SHORT).show();
+        MovieHorizontalAdapter adapter = adapterFor(category);
+        //Past the hard TTL it only comes back if the revalidation fails,
+        //and a revalidation that already landed is newer than anything on disk
+        if (cachedMovies != null && !cachedMovies.isEmpty() && state != CachePolicy.State.EXPIRED
+                && adapter.getItemCount() == 0) {
+            adapter.setMovies(cachedMovies);
+            StartupTrace.mark("first_row");
         }
-
-        if (cachedUpcoming != null && !cachedUpcoming.isEmpty() && preferencesHelper.isCacheExpired("upcoming", CACHE_EXPIRATION)) {
-            upcomingMovieList.clear();
-            upcomingMovieList.addAll(cachedUpcoming);
-            upcomingMovieHorizontalAdapter.notifyDataSetChanged();
-            Toast.makeText(this, "Showing cached upcoming movies", Toast.LENGTH_SHORT).show();
+        if (state != CachePolicy.State.FRESH) {
+            CategoryRefresher.getInstance(this).refresh(category);
         }
+        PreferencesHelper.logMemoryStats();
     }
 
-    private void fetchAllMovies() {
-        fetchPopularMovies();
-        fetchTrendingMovies();
-        fetchTopRatedMovies();
-        fetchUpcomingMovies();
+    @Override
+    public void onCategoryRefreshed(String category, List<Movie> movies) {
+        MovieHorizontalAdapter adapter = adapterFor(category);
+        if (adapter != null) {
+            adapter.setMovies(movies);
+            StartupTrace.mark("first_row");
+        }
     }
 
-    private void fetchPopularMovies() {
-        String apiKey = Constants.API_KEY;
-        String language = "en-US";
-        int page = 1;
-        ApiService apiService = ApiClient.getRetrofitInstance().create(ApiService.class);
-        Call<MovieResponse> call = apiService.getPopularMovies(apiKey, language, page);
-        call.enqueue(new Callback<MovieResponse>() {
-            @Override
-            public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    popularMovieList.clear();
-                    popularMovieList.addAll(response.body().getMovies());
-                    popularMovieHorizontalAdapter.notifyDataSetChanged();
-
-                    // Cache the new data
-                    preferencesHelper.saveMovies(popularMovieList, "popular");
+    @Override
+    public void onCategoryRefreshFailed(String category, Throwable t) {
+        MovieHorizontalAdapter adapter = adapterFor(category);
+        if (adapter == null || adapter.getItemCount() > 0) {
+            return;
+        }
+        if (!isNetworkAvailable()) {
+            // Load cached data if available, however old
+            CacheHydrator.getInstance(this).loadCategory(category, (cachedMovies, state) -> {
+                if (isDestroyed() || adapter.getItemCount() > 0) {
+                    return;
                 }
-            }
-
-            @Override
-            public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
-                if (!isNetworkAvailable()) {
-                    // Load cached data if available
-                    List<Movie> cachedMovies = preferencesHelper.getCachedMovies("popular");
-                    if (cachedMovies != null && !cachedMovies.isEmpty()) {
-                        popularMovieList.clear();
-                        popularMovieList.addAll(cachedMovies);
-                        popularMovieHorizontalAdapter.notifyDataSetChanged();
-                        Toast.makeText(MainActivity.this, "Showing cached popular movies", Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(MainActivity.this, "No cached popular movies available", Toast.LENGTH_SHORT).show();
-                    }
+                if (cachedMovies != null && !cachedMovies.isEmpty()) {
+                    adapter.setMovies(cachedMovies);
+                    Toast.makeText(this, "Showing cached " + labelFor(category) + " movies", Toast.LENGTH_SHORT).show();
                 } else {
-                    Toast.makeText(MainActivity.this, "Error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
+                    Toast.makeText(this, "No cached " + labelFor(category) + " movies available", Toast.LENGTH_SHORT).show();
                 }
-            }
-        });
+            });
+        } else {
+            Toast.makeText(this, "Error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
+        }
     }
 
-    private void fetchTrendingMovies() {
-        String apiKey = Constants.API_KEY;
-        String language = "en-US";
-        int page = 1;
-        ApiService apiService = ApiClient.getRetrofitInstance().create(ApiService.class);
-        Call<MovieResponse> call = apiService.getTrendingMovies(apiKey, language, page);
-        call.enqueue(new Callback<MovieResponse>() {
-            @Override
-            public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    trendingMovieList.clear();
-                    trendingMovieList.addAll(response.body().getMovies());
-                    trendingMovieHorizontalAdapter.notifyDataSetChanged();
-
-                    // Cache the new data
-                    preferencesHelper.saveMovies(trendingMovieList, "trending");
-                }
-            }
-
-            @Override
-            public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
-                if (!isNetworkAvailable()) {
-                    // Load cached data if available
-                    List<Movie> cachedMovies = preferencesHelper.getCachedMovies("trending");
-                    if (cachedMovies != null && !cachedMovies.isEmpty()) {
-                        trendingMovieList.clear();
-                        trendingMovieList.addAll(cachedMovies);
-                        trendingMovieHorizontalAdapter.notifyDataSetChanged();
-                        Toast.makeText(MainActivity.this, "Showing cached trending movies", Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(MainActivity.this, "No cached trending movies available", Toast.LENGTH_SHORT).show();
-                    }
-                } else {
-                    Toast.makeText(MainActivity.this, "Error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
-                }
-            }
-        });
+    private MovieHorizontalAdapter adapterFor(String category) {
+        switch (category) {
+            case "popular":
+                return popularMovieHorizontalAdapter;
+            case "trending":
+                return trendingMovieHorizontalAdapter;
+            case "toprated":
+                return topRatedMovieHorizontalAdapter;
+            case "upcoming":
+                return upcomingMovieHorizontalAdapter;
+            default:
+                return null;
+        }
     }
 
-    private void fetchTopRatedMovies() {
-        String apiKey = Constants.API_KEY;
-        String language = "en-US";
-        int page = 1;
-        ApiService apiService = ApiClient.getRetrofitInstance().create(ApiService.class);
-        Call<MovieResponse> call = apiService.getTopRatedMovies(apiKey, language, page);
-        call.enqueue(new Callback<MovieResponse>() {
-            @Override
-            public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    topRatedMovieList.clear();
-                    topRatedMovieList.addAll(response.body().getMovies());
-                    topRatedMovieHorizontalAdapter.notifyDataSetChanged();
-
-                    // Cache the new data
-                    preferencesHelper.saveMovies(topRatedMovieList, "toprated");
-                }
-            }
-
-            @Override
-            public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
-                if (!isNetworkAvailable()) {
-                    // Load cached data if available
-                    List<Movie> cachedMovies = preferencesHelper.getCachedMovies("toprated");
-                    if (cachedMovies != null && !cachedMovies.isEmpty()) {
-                        topRatedMovieList.clear();
-                        topRatedMovieList.addAll(cachedMovies);
-                        topRatedMovieHorizontalAdapter.notifyDataSetChanged();
-                        Toast.makeText(MainActivity.this, "Showing cached top-rated movies", Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(MainActivity.this, "No cached top-rated movies available", Toast.LENGTH_SHORT).show();
-                    }
-                } else {
-                    Toast.makeText(MainActivity.this, "Error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
-                }
-            }
-        });
+    private static String labelFor(String category) {
+        return "toprated".equals(category) ? "top-rated" : category;
     }
 
-    private void fetchUpcomingMovies() {
-        String apiKey = Constants.API_KEY;
-        String language = "en-US";
-        int page = 1;
-        ApiService apiService = ApiClient.getRetrofitInstance().create(ApiService.class);
-        Call<MovieResponse> call = apiService.getUpcomingMovies(apiKey, language, page);
-        call.enqueue(new Callback<MovieResponse>() {
-            @Override
-            public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    upcomingMovieList.clear();
-                    upcomingMovieList.addAll(response.body().getMovies());
-                    upcomingMovieHorizontalAdapter.notifyDataSetChanged();
+    @Override
+    protected void onStart() {
+        super.onStart();
+        for (PosterPreloader preloader : posterPreloaders) {
+            preloader.start();
+        }
+    }
 
-                    // Cache the new data
-                    preferencesHelper.saveMovies(upcomingMovieList, "upcoming");
-                }
-            }
+    @Override
+    protected void onStop() {
+        super.onStop();
+        for (PosterPreloader preloader : posterPreloaders) {
+            preloader.stop();
+        }
+    }
 
-            @Override
-            public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
-                if (!isNetworkAvailable()) {
-                    // Load cached data if available
-                    List<Movie> cachedMovies = preferencesHelper.getCachedMovies("upcoming");
-                    if (cachedMovies != null && !cachedMovies.isEmpty()) {
-                        upcomingMovieList.clear();
-                        upcomingMovieList.addAll(cachedMovies);
-                        upcomingMovieHorizontalAdapter.notifyDataSetChanged();
-                        Toast.makeText(MainActivity.this, "Showing cached upcoming movies", Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(MainActivity.this, "No cached upcoming movies available", Toast.LENGTH_SHORT).show();
-                    }
-                } else {
-                    Toast.makeText(MainActivity.this, "Error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
-                }
-            }
-        });
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        CategoryRefresher.getInstance(this).removeListener(this);
     }
 
     private boolean isNetworkAvailable() {
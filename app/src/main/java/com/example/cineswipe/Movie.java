@@ -15,6 +15,8 @@ public class Movie implements Serializable {
     private List<Genre> genres;
     private int runtime;
     private List<CastMember> cast;
+    //List endpoints only send genre ids, details send full genres
+    private int[] genre_ids;
 
     public Movie() {
     }
@@ -75,6 +77,89 @@ public class Movie implements Serializable {
         return genreNames.toString();
     }
 
+    List<Genre> getGenreList() {
+        return genres;
+    }
+
+    //Raw genre_ids as sent by list endpoints, null if there were none
+    int[] getRawGenreIds() {
+        return genre_ids;
+    }
+
+    void setGenreIds(int[] genreIds) {
+        this.genre_ids = genreIds;
+    }
+
+    //Genre ids from whichever source this copy has
+    public int[] getGenreIds() {
+        if (genres != null) {
+            int[] ids = new int[genres.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = genres.get(i).getId();
+            }
+            return ids;
+        }
+        return genre_ids != null ? genre_ids : new int[0];
+    }
+
+    int getRuntimeMinutes() {
+        return runtime;
+    }
+
+    List<CastMember> getCastList() {
+        return cast;
+    }
+
+    void setCastList(List<CastMember> cast) {
+        this.cast = cast;
+    }
+
+    //True once the movie was hydrated with append_to_response=credits
+    public boolean hasCredits() {
+        return cast != null;
+    }
+
+    //A private copy for reading a canonical instance off the main thread. Merges only happen on the main
+    //thread and under this lock, so the copy never mixes two versions of the movie
+    synchronized Movie copy() {
+        Movie copy = new Movie(id, title, release_date, poster_path, backdrop_path, overview, vote_average,
+                genres, runtime, cast);
+        copy.genre_ids = genre_ids;
+        return copy;
+    }
+
+    //Upgrades this canonical instance in place, see MovieStore. Empty values never replace known ones;
+    //otherwise the other copy wins only if it is newer, or fills gaps if it isn't
+    synchronized void mergeFrom(Movie other, boolean newer) {
+        title = pick(title, other.title, newer);
+        release_date = pick(release_date, other.release_date, newer);
+        poster_path = pick(poster_path, other.poster_path, newer);
+        backdrop_path = pick(backdrop_path, other.backdrop_path, newer);
+        overview = pick(overview, other.overview, newer);
+        if (other.vote_average != 0 && (newer || vote_average == 0)) {
+            vote_average = other.vote_average;
+        }
+        if (other.genres != null && (newer || genres == null)) {
+            genres = other.genres;
+        }
+        if (other.genre_ids != null && (newer || genre_ids == null)) {
+            genre_ids = other.genre_ids;
+        }
+        if (other.runtime > 0 && (newer || runtime <= 0)) {
+            runtime = other.runtime;
+        }
+        if (other.cast != null && (newer || cast == null)) {
+            cast = other.cast;
+        }
+    }
+
+    private static String pick(String current, String candidate, boolean newer) {
+        if (candidate == null || candidate.isEmpty()) {
+            return current;
+        }
+        return newer || current == null || current.isEmpty() ? candidate : current;
+    }
+
     public String getRuntime() {
         return (runtime > 0) ? runtime + " min" : "N/A";
     }
@@ -93,11 +178,11 @@ public class Movie implements Serializable {
     }
 
     public String getPosterUrl() {
-        return (poster_path != null) ? "https://image.tmdb.org/t/p/w500" + poster_path : null;
+        return TmdbImageUrls.poster(poster_path, TmdbImageUrls.DEFAULT_POSTER_WIDTH, false);
     }
 
     public String getBackdropUrl() {
-        return (backdrop_path != null) ? "https://image.tmdb.org/t/p/w500" + backdrop_path : null;
+        return TmdbImageUrls.backdrop(backdrop_path, TmdbImageUrls.DEFAULT_BACKDROP_WIDTH, false);
     }
 
     @Override
@@ -125,7 +210,7 @@ public class Movie implements Serializable {
 }
 
 //Genre class for holding genre information
-class Genre {
+class Genre implements Serializable {
     private int id;
     private String name;
 
@@ -134,20 +219,40 @@ class Genre {
         this.name = name;
     }
 
+    public int getId() {
+        return id;
+    }
+
     public String getName() {
         return name;
     }
 }
 
 //CastMember class for holding cast member information
-class CastMember {
+class CastMember implements Serializable {
+    private int id;
     private String name;
+    private String character;
 
     public CastMember(String name) {
         this.name = name;
     }
 
+    public CastMember(int id, String name, String character) {
+        this.id = id;
+        this.name = name;
+        this.character = character;
+    }
+
+    public int getId() {
+        return id;
+    }
+
     public String getName() {
         return name;
     }
+
+    public String getCharacter() {
+        return character;
+    }
 }
@@ -0,0 +1,483 @@
+package com.example.cineswipe;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+//Compact binary encoding for cached movies.
+//Layout: MAGIC, version, string table (genre/cast names and characters), overview block, movie count, movies.
+//Integers are unsigned LEB128 varints, strings are UTF-8 prefixed with (length + 1) so 0 means null
+public class MovieBinaryCodec {
+    private static final int MAGIC = 0xCB;
+    static final int VERSION_1 = 1;
+    //Adds list-endpoint genre_ids
+    static final int VERSION_2 = 2;
+    //Moves every overview of the list into one block, deflated as a whole. Inflating each overview on its
+    //own was most of the decode time and saved little, a single overview is too short to compress well
+    static final int VERSION_3 = 3;
+    static final int CURRENT_VERSION = VERSION_3;
+
+    //Deflate only pays off on longer text, short blocks grow from the zlib header
+    private static final int DEFLATE_MIN_CHARS = 160;
+    private static final int MAX_OVERVIEW_BYTES = 1 << 20;
+    private static final int MAX_OVERVIEW_BLOCK_BYTES = 16 << 20;
+
+    private static final int FLAG_NUMERIC_ID = 1;
+    //Versions 1 and 2 only
+    private static final int FLAG_DEFLATED_OVERVIEW = 1 << 1;
+    private static final int FLAG_GENRES = 1 << 2;
+    private static final int FLAG_CAST = 1 << 3;
+    private static final int FLAG_RAW_RATING = 1 << 4;
+    private static final int FLAG_GENRE_IDS = 1 << 5;
+
+    private MovieBinaryCodec() {
+    }
+
+    //Older cache rows are JSON and start with '{' or '['
+    public static boolean isEncoded(byte[] payload) {
+        return payload != null && payload.length >= 2 && (payload[0] & 0xFF) == MAGIC;
+    }
+
+    public static byte[] encode(Movie movie) {
+        return encodeList(Collections.singletonList(movie));
+    }
+
+    public static Movie decode(byte[] payload) throws IOException {
+        List<Movie> movies = decodeList(payload);
+        if (movies.size() != 1) {
+            throw new IOException("Expected one movie, found " + movies.size());
+        }
+        return movies.get(0);
+    }
+
+    public static byte[] encodeList(List<Movie> movies) {
+        try (Encoder encoder = new Encoder()) {
+            return encoder.encodeList(movies);
+        }
+    }
+
+    //For writing many payloads in a row: one Deflater and one set of buffers for all of them.
+    //encodeList() shares one string table across the list, which is why a category or a deck is stored
+    //as one payload rather than a row per movie. The Deflater holds native memory until close()
+    public static class Encoder implements AutoCloseable {
+        private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        private final StringTable table = new StringTable();
+        private final Writer out = new Writer();
+        private final Writer overviews = new Writer();
+
+        public byte[] encode(Movie movie) {
+            return encodeList(Collections.singletonList(movie));
+        }
+
+        public byte[] encodeList(List<Movie> shared) {
+            //Canonical movies can be merged into on the main thread meanwhile, encode one consistent copy of each
+            List<Movie> movies = new ArrayList<>(shared.size());
+            for (Movie movie : shared) {
+                movies.add(movie.copy());
+            }
+            //Shared names go in the table first so every movie refers to them by index
+            table.clear();
+            for (Movie movie : movies) {
+                if (movie.getGenreList() != null) {
+                    for (Genre genre : movie.getGenreList()) {
+                        table.add(genre.getName());
+                    }
+                }
+                if (movie.getCastList() != null) {
+                    for (CastMember member : movie.getCastList()) {
+                        table.add(member.getName());
+                        table.add(member.getCharacter());
+                    }
+                }
+            }
+
+            out.reset();
+            out.write(MAGIC);
+            out.write(CURRENT_VERSION);
+            out.writeVarint(table.strings.size());
+            for (String value : table.strings) {
+                out.writeString(value);
+            }
+            overviews.reset();
+            for (Movie movie : movies) {
+                overviews.writeString(movie.getOverview());
+            }
+            byte[] rawOverviews = overviews.toByteArray();
+            byte[] deflatedOverviews = deflate(rawOverviews, deflater);
+            //A stored length equal to the raw length means the block was kept as is
+            out.writeVarint(rawOverviews.length);
+            if (deflatedOverviews != null) {
+                out.writeVarint(deflatedOverviews.length);
+                out.write(deflatedOverviews, 0, deflatedOverviews.length);
+            } else {
+                out.writeVarint(rawOverviews.length);
+                out.write(rawOverviews, 0, rawOverviews.length);
+            }
+
+            out.writeVarint(movies.size());
+            for (Movie movie : movies) {
+                writeMovie(out, movie, table);
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        public void close() {
+            deflater.end();
+        }
+    }
+
+    public static List<Movie> decodeList(byte[] payload) throws IOException {
+        if (!isEncoded(payload)) {
+            throw new IOException("Not a binary movie payload");
+        }
+        Reader in = new Reader(payload);
+        in.read();
+        int version = in.read();
+        switch (version) {
+            case VERSION_1:
+            case VERSION_2:
+            case VERSION_3:
+                return readMovies(in, version);
+            default:
+                //Written by a newer build, callers treat it like a cache miss
+                throw new IOException("Unsupported movie format version " + version);
+        }
+    }
+
+    private static void writeMovie(Writer out, Movie movie, StringTable table) {
+        long numericId = parseId(movie.getId());
+        long compactRating = Math.round(movie.getVoteAverage() * 1000);
+        boolean rawRating = compactRating < 0 || compactRating / 1000.0 != movie.getVoteAverage();
+
+        int flags = 0;
+        if (numericId >= 0) flags |= FLAG_NUMERIC_ID;
+        if (movie.getGenreList() != null) flags |= FLAG_GENRES;
+        if (movie.getCastList() != null) flags |= FLAG_CAST;
+        if (rawRating) flags |= FLAG_RAW_RATING;
+        if (movie.getRawGenreIds() != null) flags |= FLAG_GENRE_IDS;
+        out.writeVarint(flags);
+
+        if (numericId >= 0) {
+            out.writeVarint(numericId);
+        } else {
+            out.writeString(movie.getId());
+        }
+        out.writeString(movie.getTitle());
+        out.writeString(movie.getReleaseDate());
+        out.writeString(movie.getPosterPath());
+        out.writeString(movie.getBackdropPath());
+        if (rawRating) {
+            out.writeLong(Double.doubleToLongBits(movie.getVoteAverage()));
+        } else {
+            //TMDB ratings have at most three decimals, 7.234 becomes 7234
+            out.writeVarint(compactRating);
+        }
+        out.writeVarint(Math.max(0, movie.getRuntimeMinutes()));
+
+        if (movie.getGenreList() != null) {
+            out.writeVarint(movie.getGenreList().size());
+            for (Genre genre : movie.getGenreList()) {
+                out.writeVarint(genre.getId() & 0xFFFFFFFFL);
+                out.writeVarint(table.indexOf(genre.getName()));
+            }
+        }
+        if (movie.getCastList() != null) {
+            out.writeVarint(movie.getCastList().size());
+            for (CastMember member : movie.getCastList()) {
+                out.writeVarint(member.getId() & 0xFFFFFFFFL);
+                out.writeVarint(table.indexOf(member.getName()));
+                out.writeVarint(table.indexOf(member.getCharacter()));
+            }
+        }
+        if (movie.getRawGenreIds() != null) {
+            out.writeVarint(movie.getRawGenreIds().length);
+            for (int genreId : movie.getRawGenreIds()) {
+                out.writeVarint(genreId & 0xFFFFFFFFL);
+            }
+        }
+    }
+
+    private static List<Movie> readMovies(Reader in, int version) throws IOException {
+        int tableSize = in.readCount();
+        String[] strings = new String[tableSize + 1]; // index 0 is null
+        for (int i = 1; i <= tableSize; i++) {
+            strings[i] = in.readString();
+        }
+
+        //Only made for deflated text, it allocates native memory
+        Inflater inflater = null;
+        try {
+            Reader overviews = null;
+            if (version >= VERSION_3) {
+                int rawLength = in.readBounded(MAX_OVERVIEW_BLOCK_BYTES);
+                int storedLength = in.readBounded(rawLength);
+                byte[] stored = in.readBytes(storedLength);
+                if (storedLength != rawLength) {
+                    inflater = new Inflater();
+                    stored = inflate(stored, rawLength, inflater);
+                }
+                overviews = new Reader(stored);
+            }
+
+            int count = in.readCount();
+            List<Movie> movies = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int flags = (int) in.readVarint();
+                String id = (flags & FLAG_NUMERIC_ID) != 0 ? Long.toString(in.readVarint()) : in.readString();
+                String title = in.readString();
+                String releaseDate = in.readString();
+                String posterPath = in.readString();
+                String backdropPath = in.readString();
+                String overview;
+                if (overviews != null) {
+                    overview = overviews.readString();
+                } else if ((flags & FLAG_DEFLATED_OVERVIEW) != 0) {
+                    int rawLength = in.readBounded(MAX_OVERVIEW_BYTES);
+                    int compressedLength = in.readCount();
+                    if (inflater == null) {
+                        inflater = new Inflater();
+                    }
+                    overview = new String(inflate(in.readBytes(compressedLength), rawLength, inflater),
+                            StandardCharsets.UTF_8);
+                } else {
+                    overview = in.readString();
+                }
+                double voteAverage = (flags & FLAG_RAW_RATING) != 0
+                        ? Double.longBitsToDouble(in.readLong())
+                        : in.readVarint() / 1000.0;
+                int runtime = (int) in.readVarint();
+
+                List<Genre> genres = null;
+                if ((flags & FLAG_GENRES) != 0) {
+                    int genreCount = in.readCount();
+                    genres = new ArrayList<>(genreCount);
+                    for (int g = 0; g < genreCount; g++) {
+                        int genreId = (int) in.readVarint();
+                        genres.add(new Genre(genreId, lookup(strings, in.readVarint())));
+                    }
+                }
+                List<CastMember> cast = null;
+                if ((flags & FLAG_CAST) != 0) {
+                    int castCount = in.readCount();
+                    cast = new ArrayList<>(castCount);
+                    for (int c = 0; c < castCount; c++) {
+                        int castId = (int) in.readVarint();
+                        String name = lookup(strings, in.readVarint());
+                        cast.add(new CastMember(castId, name, lookup(strings, in.readVarint())));
+                    }
+                }
+                Movie movie = new Movie(id, title, releaseDate, posterPath, backdropPath, overview,
+                        voteAverage, genres, runtime, cast);
+                if (version >= VERSION_2 && (flags & FLAG_GENRE_IDS) != 0) {
+                    int[] genreIds = new int[in.readCount()];
+                    for (int g = 0; g < genreIds.length; g++) {
+                        genreIds[g] = (int) in.readVarint();
+                    }
+                    movie.setGenreIds(genreIds);
+                }
+                movies.add(movie);
+            }
+            return movies;
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    private static String lookup(String[] strings, long index) throws IOException {
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("String index " + index + " out of range");
+        }
+        return strings[(int) index];
+    }
+
+    //Only canonical decimal ids are stored as varints so "007" doesn't come back as "7"
+    private static long parseId(String id) {
+        if (id == null || id.isEmpty() || id.length() > 18 || (id.length() > 1 && id.charAt(0) == '0')) {
+            return -1;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) < '0' || id.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Long.parseLong(id);
+    }
+
+    private static byte[] deflate(byte[] raw, Deflater deflater) {
+        if (raw.length < DEFLATE_MIN_CHARS) {
+            return null;
+        }
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] buffer = new byte[raw.length];
+        int length = 0;
+        while (!deflater.finished() && length < buffer.length) {
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        if (!deflater.finished() || length >= raw.length) {
+            return null;
+        }
+        byte[] compressed = new byte[length];
+        System.arraycopy(buffer, 0, compressed, 0, length);
+        return compressed;
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength, Inflater inflater) throws IOException {
+        inflater.reset();
+        inflater.setInput(compressed);
+        byte[] raw = new byte[rawLength];
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, length, rawLength - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != rawLength) {
+                throw new IOException("Truncated overview");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt overview", e);
+        }
+        return raw;
+    }
+
+    private static class StringTable {
+        final List<String> strings = new ArrayList<>();
+        final Map<String, Integer> indexes = new HashMap<>();
+
+        void add(String value) {
+            if (value != null && !indexes.containsKey(value)) {
+                strings.add(value);
+                indexes.put(value, strings.size());
+            }
+        }
+
+        //1-based, 0 is null
+        int indexOf(String value) {
+            return value == null ? 0 : indexes.get(value);
+        }
+
+        void clear() {
+            strings.clear();
+            indexes.clear();
+        }
+    }
+
+    private static class Writer extends ByteArrayOutputStream {
+        Writer() {
+            super(256);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift) & 0xFF);
+            }
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1L);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int read() throws IOException {
+            if (position >= data.length) {
+                throw new IOException("Unexpected end of movie payload");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        //Every counted element takes at least a byte, so a corrupt row can't allocate gigabytes
+        int readCount() throws IOException {
+            return readBounded(data.length - position);
+        }
+
+        int readBounded(long max) throws IOException {
+            long value = readVarint();
+            if (value < 0 || value > max) {
+                throw new IOException("Bad length " + value);
+            }
+            return (int) value;
+        }
+
+        long readLong() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | read();
+            }
+            return value;
+        }
+
+        byte[] readBytes(int length) throws IOException {
+            if (length > data.length - position) {
+                throw new IOException("Unexpected end of movie payload");
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(data, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+
+        String readString() throws IOException {
+            long prefix = readVarint();
+            if (prefix == 0) {
+                return null;
+            }
+            int length = (int) (prefix - 1);
+            if (prefix - 1 > data.length - position) {
+                throw new IOException("Unexpected end of movie payload");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
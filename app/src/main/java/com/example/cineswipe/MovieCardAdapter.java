@@ -14,14 +14,23 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.resource.bitmap.CenterCrop;
 import com.bumptech.glide.load.resource.bitmap.RoundedCorners;
 import com.bumptech.glide.request.RequestOptions;
+import com.yuyakaido.android.cardstackview.CardStackLayoutManager;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class MovieCardAdapter extends RecyclerView.Adapter<MovieCardAdapter.MovieViewHolder> {
+    private static final int PINNED_CARDS = 2;
+    //Swiped cards kept for rewinding; older ones are dropped in batches so the deck stays a small window
+    private static final int HISTORY_CARDS = 10;
+    private static final int TRIM_BATCH = 20;
+    //Shared with PosterPreloader, the transformations are part of Glide's memory cache key
+    static final RequestOptions POSTER_OPTIONS = new RequestOptions()
+            .transforms(new CenterCrop(), new RoundedCorners(16));
     private Context context;
     private List<Movie> movieList;
-    private static final String IMAGE_BASE_URL = "https://image.tmdb.org/t/p/w500";
+    //Run once, when the first card is bound
+    private Runnable onFirstBind;
 
     public MovieCardAdapter(Context context, List<Movie> movieList) {
         this.context = context;
@@ -38,6 +47,10 @@ public class MovieCardAdapter extends RecyclerView.Adapter<MovieCardAdapter.Movi
         return new MovieViewHolder(view);
     }
 
+    public void setOnFirstBind(Runnable onFirstBind) {
+        this.onFirstBind = onFirstBind;
+    }
+
     @Override
     public void onBindViewHolder(@NonNull MovieViewHolder holder, int position) {
         Movie movie = movieList.get(position);
@@ -48,14 +61,19 @@ public class MovieCardAdapter extends RecyclerView.Adapter<MovieCardAdapter.Movi
             holder.movieDescription.setText(movie.getOverview());
         }
 
-        RequestOptions requestOptions = new RequestOptions()
-                .transforms(new CenterCrop(), new RoundedCorners(16));
+        //A missing poster_path loads null, which shows the error drawable instead of requesting w500null
         Glide.with(context)
-                .load(IMAGE_BASE_URL + movie.getPosterPath())
-                .apply(requestOptions)
+                .load(TmdbImageUrls.posterFor(holder.moviePoster, movie.getPosterPath()))
+                .apply(POSTER_OPTIONS)
                 .placeholder(R.drawable.ic_placeholder)
                 .error(R.drawable.error_movie)
                 .into(holder.moviePoster);
+
+        if (onFirstBind != null) {
+            Runnable firstBind = onFirstBind;
+            onFirstBind = null;
+            firstBind.run();
+        }
     }
 
     @Override
@@ -80,6 +98,35 @@ public class MovieCardAdapter extends RecyclerView.Adapter<MovieCardAdapter.Movi
         notifyItemRangeInserted(startIndex, newMovies.size());
     }
 
+    //Appends a page and lets the ranker reorder it together with the cards not yet reached.
+    //The top card and the one showing under it keep their place
+    public void addMoviesRanked(List<Movie> newMovies, int topPosition, SwipeRanker ranker) {
+        int start = Math.max(0, Math.min(topPosition + PINNED_CARDS, movieList.size()));
+        List<Movie> tail = movieList.subList(start, movieList.size());
+        int oldCount = tail.size();
+        List<Movie> candidates = new ArrayList<>(tail);
+        candidates.addAll(newMovies);
+        List<Movie> ranked = ranker.rank(candidates);
+        tail.clear();
+        movieList.addAll(ranked);
+        notifyItemRangeChanged(start, oldCount);
+        notifyItemRangeInserted(start + oldCount, ranked.size() - oldCount);
+    }
+
+    //Call after a swipe, outside of the layout pass. Keeps HISTORY_CARDS behind the top card
+    //and moves the top position back by however many were removed
+    public void trimSwiped(CardStackLayoutManager manager) {
+        int topPosition = manager.getTopPosition();
+        int removable = Math.min(topPosition, movieList.size()) - HISTORY_CARDS;
+        if (removable < TRIM_BATCH) {
+            return;
+        }
+        movieList.subList(0, removable).clear();
+        notifyItemRangeRemoved(0, removable);
+        //CardStackView's own observer moves the top card to the start of the removed range, put it back
+        manager.setTopPosition(topPosition - removable);
+    }
+
     public Movie getMovieAt(int currentMovieIndex) {
         if (currentMovieIndex >= 0 && currentMovieIndex < movieList.size()) {
             return movieList.get(currentMovieIndex);
@@ -0,0 +1,322 @@
+package com.example.cineswipe;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+//On-device movie cache: one payload per category, category membership by rank, detail rows by id.
+//Reads and writes only touch the rows involved, unlike the old single SharedPreferences XML.
+//A category's movies share one string table and header; per-movie rows (the movies table) are gone since version 4
+public class MovieDatabase extends SQLiteOpenHelper {
+    private static final String TAG = "MovieDatabase";
+    private static final String DATABASE_NAME = "cineswipe_movies.db";
+    private static final int DATABASE_VERSION = 4;
+    //Pre-database cache, removed once the tables exist
+    private static final String LEGACY_PREF_NAME = "CineSwipePrefs";
+
+    //Before version 4 only, one payload per list movie
+    private static final String LEGACY_TABLE_MOVIES = "movies";
+    static final String TABLE_CATEGORY_MOVIES = "category_movies";
+    static final String TABLE_CATEGORIES = "categories";
+    static final String TABLE_MOVIE_DETAILS = "movie_details";
+
+    private static MovieDatabase instance;
+    //Writes are serialized off the main thread; SQLite allows reads meanwhile
+    private static final ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+
+    //VACUUM only once at least this share of the file is free pages
+    private static final double VACUUM_FREE_RATIO = 0.25;
+
+    private final Context appContext;
+    private final MovieDetailStore detailStore;
+
+    private MovieDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        appContext = context;
+        detailStore = new MovieDetailStore(this);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    public static synchronized MovieDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new MovieDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_CATEGORIES + " ("
+                + "category TEXT PRIMARY KEY, "
+                + "updated_at INTEGER NOT NULL, "
+                + "soft_ttl INTEGER NOT NULL DEFAULT 0, "
+                + "content_hash INTEGER NOT NULL DEFAULT 0, "
+                + "payload BLOB)");
+        db.execSQL("CREATE TABLE " + TABLE_CATEGORY_MOVIES + " ("
+                + "category TEXT NOT NULL, "
+                + "rank INTEGER NOT NULL, "
+                + "movie_id TEXT NOT NULL, "
+                + "PRIMARY KEY (category, rank))");
+        db.execSQL("CREATE INDEX idx_category_movies_movie ON " + TABLE_CATEGORY_MOVIES + " (movie_id)");
+        db.execSQL("CREATE TABLE " + TABLE_MOVIE_DETAILS + " ("
+                + "id TEXT PRIMARY KEY, "
+                + "payload BLOB NOT NULL, "
+                + "updated_at INTEGER NOT NULL, "
+                + "size_bytes INTEGER NOT NULL DEFAULT 0, "
+                + "last_access INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX idx_movie_details_access ON " + TABLE_MOVIE_DETAILS + " (last_access)");
+
+        //The old XML cache is only a cache; dropping it beats parsing the whole file once more
+        appContext.deleteSharedPreferences(LEGACY_PREF_NAME);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            //Learned refresh interval and id fingerprint, see CachePolicy
+            db.execSQL("ALTER TABLE " + TABLE_CATEGORIES + " ADD COLUMN soft_ttl INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + TABLE_CATEGORIES + " ADD COLUMN content_hash INTEGER NOT NULL DEFAULT 0");
+        }
+        if (oldVersion < 3) {
+            //Size and access time for MovieDetailStore's LRU budget
+            db.execSQL("ALTER TABLE " + TABLE_MOVIE_DETAILS + " ADD COLUMN size_bytes INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + TABLE_MOVIE_DETAILS + " ADD COLUMN last_access INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE " + TABLE_MOVIE_DETAILS + " SET size_bytes = length(payload), last_access = updated_at");
+            db.execSQL("CREATE INDEX idx_movie_details_access ON " + TABLE_MOVIE_DETAILS + " (last_access)");
+        }
+        if (oldVersion < 4) {
+            db.execSQL("ALTER TABLE " + TABLE_CATEGORIES + " ADD COLUMN payload BLOB");
+            migrateCategoryPayloads(db);
+            db.execSQL("DROP TABLE " + LEGACY_TABLE_MOVIES);
+        }
+    }
+
+    //Folds each category's per-movie rows into one list payload, unreadable rows are dropped
+    private static void migrateCategoryPayloads(SQLiteDatabase db) {
+        List<String> categories = new ArrayList<>();
+        try (Cursor cursor = db.query(TABLE_CATEGORIES, new String[]{"category"}, null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                categories.add(cursor.getString(0));
+            }
+        }
+        try (MovieBinaryCodec.Encoder encoder = new MovieBinaryCodec.Encoder()) {
+            for (String category : categories) {
+                List<Movie> movies = new ArrayList<>();
+                try (Cursor cursor = db.rawQuery("SELECT m.payload FROM " + TABLE_CATEGORY_MOVIES + " c"
+                        + " JOIN " + LEGACY_TABLE_MOVIES + " m ON m.id = c.movie_id"
+                        + " WHERE c.category = ? ORDER BY c.rank", new String[]{category})) {
+                    while (cursor.moveToNext()) {
+                        Movie movie = decode(cursor.getBlob(0));
+                        if (movie != null) {
+                            movies.add(movie);
+                        }
+                    }
+                }
+                ContentValues values = new ContentValues();
+                values.put("payload", writeCategoryMovies(db, category, movies, encoder));
+                db.update(TABLE_CATEGORIES, values, "category = ?", new String[]{category});
+            }
+        }
+    }
+
+    //Rewrites the category's ranks and returns its list payload. The ranks are what getMovie() finds a
+    //list movie's category by
+    private static byte[] writeCategoryMovies(SQLiteDatabase db, String category, List<Movie> movies,
+                                              MovieBinaryCodec.Encoder encoder) {
+        db.delete(TABLE_CATEGORY_MOVIES, "category = ?", new String[]{category});
+        SQLiteStatement insertRank = db.compileStatement("INSERT INTO " + TABLE_CATEGORY_MOVIES
+                + " (category, rank, movie_id) VALUES (?, ?, ?)");
+        int rank = 0;
+        for (Movie movie : movies) {
+            insertRank.bindString(1, category);
+            insertRank.bindLong(2, rank++);
+            insertRank.bindString(3, movie.getId());
+            insertRank.executeInsert();
+        }
+        return encoder.encodeList(movies);
+    }
+
+    public MovieDetailStore getDetailStore() {
+        return detailStore;
+    }
+
+    //Trims details to budget and reclaims free pages. Runs on the write executor at process start
+    public void compact() {
+        SQLiteDatabase db = getWritableDatabase();
+        detailStore.compact(db);
+
+        long pageCount = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null);
+        long freePages = DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+        if (pageCount > 0 && freePages >= pageCount * VACUUM_FREE_RATIO) {
+            db.execSQL("VACUUM");
+        }
+        Log.d(TAG, "Compacted: " + freePages + "/" + pageCount + " free pages");
+    }
+
+    static void runWrite(Runnable write) {
+        writeExecutor.execute(() -> {
+            try {
+                write.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Cache write failed", e);
+            }
+        });
+    }
+
+    //Returns the soft TTL learned from whether the ids changed since the last save
+    public long replaceCategory(String category, List<Movie> movies, long now, CachePolicy policy) {
+        long contentHash = CachePolicy.contentHash(movies);
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            long softTtl = 0;
+            try (Cursor cursor = db.query(TABLE_CATEGORIES, new String[]{"soft_ttl", "content_hash"},
+                    "category = ?", new String[]{category}, null, null, null)) {
+                if (cursor.moveToFirst()) {
+                    softTtl = policy.nextSoftTtl(category, cursor.getLong(0), cursor.getLong(1) != contentHash);
+                }
+            }
+
+            List<Movie> kept = new ArrayList<>(movies.size());
+            for (Movie movie : movies) {
+                if (movie.getId() != null) {
+                    kept.add(movie);
+                }
+            }
+            byte[] payload;
+            try (MovieBinaryCodec.Encoder encoder = new MovieBinaryCodec.Encoder()) {
+                payload = writeCategoryMovies(db, category, kept, encoder);
+            }
+
+            ContentValues values = new ContentValues();
+            values.put("category", category);
+            values.put("payload", payload);
+            values.put("updated_at", now);
+            values.put("soft_ttl", softTtl);
+            values.put("content_hash", contentHash);
+            db.insertWithOnConflict(TABLE_CATEGORIES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            db.setTransactionSuccessful();
+            return softTtl;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    //Null when the category was never cached or its payload can't be read
+    public List<Movie> getCategory(String category) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_CATEGORIES, new String[]{"payload"},
+                "category = ?", new String[]{category}, null, null, null)) {
+            return cursor.moveToFirst() ? decodeList(cursor.getBlob(0)) : null;
+        }
+    }
+
+    //Every cached movie: list movies first (once each, whichever category comes first), then the richer
+    //detail rows for the same ids
+    public void forEachMovie(Consumer<Movie> consumer) {
+        SQLiteDatabase db = getReadableDatabase();
+        Set<String> seen = new HashSet<>();
+        try (Cursor cursor = db.query(TABLE_CATEGORIES, new String[]{"payload"}, null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                List<Movie> movies = decodeList(cursor.getBlob(0));
+                if (movies == null) {
+                    continue;
+                }
+                for (Movie movie : movies) {
+                    if (seen.add(movie.getId())) {
+                        consumer.accept(movie);
+                    }
+                }
+            }
+        }
+        try (Cursor cursor = db.query(TABLE_MOVIE_DETAILS, new String[]{"payload"}, null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                Movie movie = decode(cursor.getBlob(0));
+                if (movie != null) {
+                    consumer.accept(movie);
+                }
+            }
+        }
+    }
+
+    //Details when cached, otherwise the copy in the first category that lists it; null if neither
+    public Movie getMovie(String movieId) {
+        Movie movie = detailStore.get(movieId);
+        if (movie != null) {
+            return movie;
+        }
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT g.payload FROM " + TABLE_CATEGORY_MOVIES + " c"
+                + " JOIN " + TABLE_CATEGORIES + " g ON g.category = c.category"
+                + " WHERE c.movie_id = ? LIMIT 1", new String[]{movieId})) {
+            List<Movie> movies = cursor.moveToFirst() ? decodeList(cursor.getBlob(0)) : null;
+            if (movies != null) {
+                for (Movie listed : movies) {
+                    if (movieId.equals(listed.getId())) {
+                        return listed;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    //-1 when not cached
+    public long getCategoryUpdatedAt(String category) {
+        return getLong(getReadableDatabase(), TABLE_CATEGORIES, "updated_at", "category", category, -1);
+    }
+
+    //0 until a category has been refreshed at least twice
+    public long getCategorySoftTtl(String category) {
+        return getLong(getReadableDatabase(), TABLE_CATEGORIES, "soft_ttl", "category", category, 0);
+    }
+
+    static long getLong(SQLiteDatabase db, String table, String column, String keyColumn, String key,
+                        long fallback) {
+        try (Cursor cursor = db.query(table, new String[]{column}, keyColumn + " = ?",
+                new String[]{key}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : fallback;
+        }
+    }
+
+    static byte[] encode(Movie movie) {
+        return MovieBinaryCodec.encode(movie);
+    }
+
+    private static List<Movie> decodeList(byte[] payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return MovieBinaryCodec.decodeList(payload);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Skipping unreadable cached category", e);
+            return null;
+        }
+    }
+
+    //Rows written before the binary format are JSON, they are rewritten on the next save
+    static Movie decode(byte[] payload) {
+        try {
+            if (MovieBinaryCodec.isEncoded(payload)) {
+                return MovieBinaryCodec.decode(payload);
+            }
+            return TmdbTypeAdapters.MOVIE.fromJson(new String(payload, StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Skipping unreadable cached movie", e);
+            return null;
+        }
+    }
+}
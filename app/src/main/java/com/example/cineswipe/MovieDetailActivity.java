@@ -7,21 +7,26 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.ProgressBar;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 public class MovieDetailActivity extends AppCompatActivity {
     private static final String API_KEY = Constants.API_KEY;
-    private static final long CACHE_EXPIRATION = 24 * 60 * 60 * 1000; // 24 hours in milliseconds
     private ApiService apiService;
     private ProgressBar progressBar;
     private View contentLayout;
     private Movie currentMovie;
     private PreferencesHelper preferencesHelper;
+    private MovieHorizontalAdapter similarAdapter;
+    private PosterPreloader similarPreloader;
+    private static final int SIMILAR_PRELOAD_ITEMS = 4;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -31,87 +36,133 @@ public class MovieDetailActivity extends AppCompatActivity {
         progressBar = findViewById(R.id.progressBar);
         contentLayout = findViewById(R.id.contentLayout);
         preferencesHelper = new PreferencesHelper(this);
+        setupSimilarRow();
 
         Intent intent = getIntent();
         currentMovie = (Movie) intent.getSerializableExtra("MOVIE_DATA");
 
         if (currentMovie != null) {
-            progressBar.setVisibility(View.VISIBLE);
-            contentLayout.setVisibility(View.GONE);
-
-            apiService = ApiClient.getClient().create(ApiService.class);
-
-            // Check if movie details are cached
-            Movie cachedMovie = preferencesHelper.getCachedMovieDetails(currentMovie.getId());
-            if (cachedMovie != null && preferencesHelper.isCacheExpired(currentMovie.getId(), CACHE_EXPIRATION)) {
-                currentMovie = cachedMovie;
-                updateUI(currentMovie);
-                progressBar.setVisibility(View.GONE);
-                contentLayout.setVisibility(View.VISIBLE);
-            } else {
-                // Fetch complete movie details
-                fetchMovieDetails(currentMovie.getId());
-                // Fetch cast separately
-                fetchMovieCredits(currentMovie.getId());
+            apiService = ApiClient.getApiService();
+
+            // Open straight away with what the lists already know, cached details are read off the main thread
+            Movie knownMovie = MovieStore.get(currentMovie.getId());
+            updateUI(knownMovie != null ? knownMovie : currentMovie);
+            if (knownMovie == null || !knownMovie.hasCredits()) {
+                TextView castView = findViewById(R.id.castTextView);
+                castView.setText("Loading cast...");
             }
+            progressBar.setVisibility(View.GONE);
+            contentLayout.setVisibility(View.VISIBLE);
+            loadSimilarMovies(knownMovie != null ? knownMovie : currentMovie);
+
+            String movieId = currentMovie.getId();
+            CacheHydrator.getInstance(this).loadDetails(movieId, (cachedMovie, state) -> {
+                if (isDestroyed()) {
+                    return;
+                }
+                // Entries from before credits were appended don't count
+                if (cachedMovie != null && cachedMovie.hasCredits()
+                        && (state == CachePolicy.State.FRESH || state == CachePolicy.State.STALE)) {
+                    currentMovie = cachedMovie;
+                    updateUI(currentMovie);
+                    if (state == CachePolicy.State.FRESH) {
+                        return;
+                    }
+                }
+                // Fetch details and cast in one request, a stale copy stays on screen meanwhile
+                fetchMovieDetails(movieId, cachedMovie);
+            });
         }
     }
 
-    private void fetchMovieDetails(String movieId) {
+    @Override
+    protected void onStart() {
+        super.onStart();
+        similarPreloader.start();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        similarPreloader.stop();
+    }
+
+    private void fetchMovieDetails(String movieId, Movie staleMovie) {
         Call<Movie> detailsCall = apiService.getMovieDetails(
                 movieId,
                 API_KEY,
-                "genres"
+                "credits"
         );
 
         detailsCall.enqueue(new Callback<Movie>() {
             @Override
             public void onResponse(Call<Movie> call, Response<Movie> response) {
                 if (response.isSuccessful() && response.body() != null) {
-                    currentMovie = response.body();
-                    // Cache the movie details
-                    preferencesHelper.saveMovieDetails(currentMovie);
+                    // Cache the movie details, this also upgrades the copy every list holds
+                    currentMovie = preferencesHelper.saveMovieDetails(response.body());
                     updateUI(currentMovie);
+                    //Cast makes for better matches than the list copy had
+                    loadSimilarMovies(currentMovie);
+                    progressBar.setVisibility(View.GONE);
+                    contentLayout.setVisibility(View.VISIBLE);
+                } else {
+                    //A 404 or 5xx is no better than no answer at all
+                    showStale(staleMovie);
                 }
-                progressBar.setVisibility(View.GONE);
-                contentLayout.setVisibility(View.VISIBLE);
             }
 
             @Override
             public void onFailure(Call<Movie> call, Throwable t) {
-                progressBar.setVisibility(View.GONE);
-                contentLayout.setVisibility(View.VISIBLE);
+                showStale(staleMovie);
             }
         });
     }
 
-    private void fetchMovieCredits(String movieId) {
-        Call<CreditsResponse> creditsCall = apiService.getMovieCredits(movieId, API_KEY);
+    //Falls back to whatever was cached, even if it is old or lacks cast
+    private void showStale(Movie staleMovie) {
+        updateUI(staleMovie != null ? staleMovie : currentMovie);
+        if (staleMovie == null || !staleMovie.hasCredits()) {
+            TextView castView = findViewById(R.id.castTextView);
+            castView.setText("Unable to load cast information");
+        }
+        progressBar.setVisibility(View.GONE);
+        contentLayout.setVisibility(View.VISIBLE);
+    }
 
-        creditsCall.enqueue(new Callback<CreditsResponse>() {
-            @Override
-            public void onResponse(Call<CreditsResponse> call, Response<CreditsResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    updateCastInfo(response.body().getCast());
-                }
-            }
+    private void setupSimilarRow() {
+        RecyclerView similarRecyclerView = findViewById(R.id.similarRecyclerView);
+        similarAdapter = new MovieHorizontalAdapter(this, new ArrayList<>());
+        similarRecyclerView.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false));
+        similarRecyclerView.addItemDecoration(new HorizontalSpaceItemDecoration(
+                getResources().getDimensionPixelSize(R.dimen.movie_card_spacing)));
+        similarRecyclerView.setAdapter(similarAdapter);
+        similarPreloader = new PosterPreloader(this, similarAdapter, similarAdapter::getMovieAt,
+                MovieHorizontalAdapter.POSTER_OPTIONS, SIMILAR_PRELOAD_ITEMS);
+        similarPreloader.attachTo(similarRecyclerView);
+    }
 
-            @Override
-            public void onFailure(Call<CreditsResponse> call, Throwable t) {
-                // Handle error
-                TextView castView = findViewById(R.id.castTextView);
-                castView.setText("Unable to load cast information");
+    //Answered from the on-device index, so it works offline and costs no request
+    private void loadSimilarMovies(Movie movie) {
+        SimilarityIndex.getInstance(this).findSimilar(movie, SimilarityIndex.DEFAULT_RESULTS, similar -> {
+            if (isDestroyed() || similar.isEmpty()) {
+                return;
             }
+            similarAdapter.setMovies(similar);
+            findViewById(R.id.similarTitleTextView).setVisibility(View.VISIBLE);
+            findViewById(R.id.similarRecyclerView).setVisibility(View.VISIBLE);
         });
     }
 
-    private void updateCastInfo(List<CreditsResponse.Cast> cast) {
+    private void updateCastInfo(Movie movie) {
         TextView castView = findViewById(R.id.castTextView);
+        List<CastMember> cast = movie.getCastList();
         if (cast != null && !cast.isEmpty()) {
             // Get first 5 cast members
             String castText = cast.stream()
                     .limit(5)
-                    .map(castMember -> castMember.getName() + " as " + castMember.getCharacter())
+                    .map(castMember -> castMember.getCharacter() != null && !castMember.getCharacter().isEmpty()
+                            ? castMember.getName() + " as " + castMember.getCharacter()
+                            : castMember.getName())
                     .collect(Collectors.joining("\n"));
             castView.setText(castText);
         } else {
@@ -121,9 +172,10 @@ public class MovieDetailActivity extends AppCompatActivity {
 
     private void updateUI(Movie movie) {
         ImageView backdropImageView = findViewById(R.id.backdropImageView);
-        if (movie.getBackdropUrl() != null) {
+        String backdropUrl = TmdbImageUrls.backdropFor(backdropImageView, movie.getBackdropPath());
+        if (backdropUrl != null) {
             Glide.with(this)
-                    .load(movie.getBackdropUrl())
+                    .load(backdropUrl)
                     .transition(DrawableTransitionOptions.withCrossFade())
                     .into(backdropImageView);
         }
@@ -141,5 +193,6 @@ public class MovieDetailActivity extends AppCompatActivity {
         genresView.setText(movie.getGenres());
         runtimeView.setText(movie.getRuntime());
         overviewView.setText(movie.getOverview());
+        updateCastInfo(movie);
     }
 }
\ No newline at end of file
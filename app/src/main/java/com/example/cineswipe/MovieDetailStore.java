@@ -0,0 +1,187 @@
+package com.example.cineswipe;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+
+//Detail rows in movie_details, kept under a byte budget by evicting the least recently opened movies.
+//Every opened movie used to get a prefs entry forever; this stays the same size however long the app is installed
+public class MovieDetailStore {
+    private static final String TAG = "MovieDetailStore";
+    public static final long DEFAULT_BUDGET_BYTES = 2 * 1024 * 1024;
+    //last_access is only rewritten when it is this far behind, so reads rarely turn into writes
+    private static final long ACCESS_TOUCH_INTERVAL = 60 * 60 * 1000;
+    private static final int EVICTION_BATCH = 16;
+    //Stored rows keep the top of the billing order only, the detail screen shows the first five.
+    //The parsers keep the full cast, so the copy in memory for this session is never trimmed
+    static final int MAX_STORED_CAST = 15;
+
+    public static class Stats {
+        private final long entryCount;
+        private final long bytes;
+        private final long budgetBytes;
+        private final long evictions;
+
+        Stats(long entryCount, long bytes, long budgetBytes, long evictions) {
+            this.entryCount = entryCount;
+            this.bytes = bytes;
+            this.budgetBytes = budgetBytes;
+            this.evictions = evictions;
+        }
+
+        public long getEntryCount() {
+            return entryCount;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getBudgetBytes() {
+            return budgetBytes;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        @Override
+        public String toString() {
+            return "entries=" + entryCount + " bytes=" + bytes + "/" + budgetBytes + " evictions=" + evictions;
+        }
+    }
+
+    private final MovieDatabase database;
+    private long budgetBytes = DEFAULT_BUDGET_BYTES;
+    //Running total of size_bytes, summed once from the table and then kept up to date; -1 until then
+    private long totalBytes = -1;
+    private long evictions;
+
+    MovieDetailStore(MovieDatabase database) {
+        this.database = database;
+    }
+
+    static Movie trimCast(Movie movie) {
+        List<CastMember> cast = movie.getCastList();
+        if (cast == null || cast.size() <= MAX_STORED_CAST) {
+            return movie;
+        }
+        Movie trimmed = movie.copy();
+        trimmed.setCastList(new ArrayList<>(cast.subList(0, MAX_STORED_CAST)));
+        return trimmed;
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public void put(Movie movie, long now) {
+        byte[] payload = MovieDatabase.encode(trimCast(movie));
+        SQLiteDatabase db = database.getWritableDatabase();
+        synchronized (this) {
+            db.beginTransaction();
+            try {
+                long total = totalBytes(db);
+                long previousSize = MovieDatabase.getLong(db, MovieDatabase.TABLE_MOVIE_DETAILS, "size_bytes",
+                        "id", movie.getId(), 0);
+                ContentValues values = new ContentValues();
+                values.put("id", movie.getId());
+                values.put("payload", payload);
+                values.put("updated_at", now);
+                values.put("size_bytes", payload.length);
+                values.put("last_access", now);
+                db.insertWithOnConflict(MovieDatabase.TABLE_MOVIE_DETAILS, null, values,
+                        SQLiteDatabase.CONFLICT_REPLACE);
+                totalBytes = total - previousSize + payload.length;
+                trimToBudget(db);
+                db.setTransactionSuccessful();
+            } catch (RuntimeException e) {
+                //The running total may not match a rolled back transaction, recount next time
+                totalBytes = -1;
+                throw e;
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    public Movie get(String movieId) {
+        long lastAccess;
+        byte[] payload;
+        try (Cursor cursor = database.getReadableDatabase().query(MovieDatabase.TABLE_MOVIE_DETAILS,
+                new String[]{"payload", "last_access"}, "id = ?", new String[]{movieId}, null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            payload = cursor.getBlob(0);
+            lastAccess = cursor.getLong(1);
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastAccess > ACCESS_TOUCH_INTERVAL) {
+            MovieDatabase.runWrite(() -> touch(movieId, now));
+        }
+        return MovieDatabase.decode(payload);
+    }
+
+    //-1 when not cached
+    public long getUpdatedAt(String movieId) {
+        return MovieDatabase.getLong(database.getReadableDatabase(), MovieDatabase.TABLE_MOVIE_DETAILS,
+                "updated_at", "id", movieId, -1);
+    }
+
+    private void touch(String movieId, long now) {
+        ContentValues values = new ContentValues();
+        values.put("last_access", now);
+        database.getWritableDatabase().update(MovieDatabase.TABLE_MOVIE_DETAILS, values, "id = ?",
+                new String[]{movieId});
+    }
+
+    //Re-reads the real total and evicts down to the budget, for use from MovieDatabase.compact()
+    synchronized void compact(SQLiteDatabase db) {
+        totalBytes = -1;
+        totalBytes(db);
+        trimToBudget(db);
+        Log.d(TAG, "Detail store after compaction: " + getStats(db));
+    }
+
+    private long totalBytes(SQLiteDatabase db) {
+        if (totalBytes < 0) {
+            totalBytes = DatabaseUtils.longForQuery(db, "SELECT IFNULL(SUM(size_bytes), 0) FROM "
+                    + MovieDatabase.TABLE_MOVIE_DETAILS, null);
+        }
+        return totalBytes;
+    }
+
+    //Oldest last_access first, a batch at a time through the last_access index
+    private void trimToBudget(SQLiteDatabase db) {
+        while (totalBytes > budgetBytes) {
+            int evictedInBatch = 0;
+            try (Cursor cursor = db.query(MovieDatabase.TABLE_MOVIE_DETAILS, new String[]{"id", "size_bytes"},
+                    null, null, null, null, "last_access ASC", String.valueOf(EVICTION_BATCH))) {
+                while (totalBytes > budgetBytes && cursor.moveToNext()) {
+                    db.delete(MovieDatabase.TABLE_MOVIE_DETAILS, "id = ?", new String[]{cursor.getString(0)});
+                    totalBytes -= cursor.getLong(1);
+                    evictions++;
+                    evictedInBatch++;
+                }
+            }
+            if (evictedInBatch == 0) {
+                totalBytes = 0;
+                return;
+            }
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return getStats(database.getReadableDatabase());
+    }
+
+    private Stats getStats(SQLiteDatabase db) {
+        long entryCount = DatabaseUtils.queryNumEntries(db, MovieDatabase.TABLE_MOVIE_DETAILS);
+        return new Stats(entryCount, totalBytes(db), budgetBytes, evictions);
+    }
+}
@@ -12,12 +12,16 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.RequestOptions;
 import java.util.ArrayList;
 import java.util.List;
 
 
 public class MovieHorizontalAdapter extends RecyclerView.Adapter<MovieHorizontalAdapter.MovieHorizontalViewHolder> {
 
+    //What Glide would pick for the centerCrop poster anyway, spelled out so PosterPreloader asks for the same
+    static final RequestOptions POSTER_OPTIONS = new RequestOptions().optionalCenterCrop();
+
     private final Context context;
     private final List<Movie> movieList;
 
@@ -40,7 +44,8 @@ public class MovieHorizontalAdapter extends RecyclerView.Adapter<MovieHorizontal
 
         // Load the poster image using Glide
         Glide.with(context)
-                .load(movie.getPosterUrl())
+                .load(TmdbImageUrls.posterFor(holder.moviePoster, movie.getPosterPath()))
+                .apply(POSTER_OPTIONS)
                 .error(R.drawable.ic_launcher_background)
                 .into(holder.moviePoster);
 
@@ -58,6 +63,13 @@ public class MovieHorizontalAdapter extends RecyclerView.Adapter<MovieHorizontal
         return movieList.size();
     }
 
+    public Movie getMovieAt(int position) {
+        if (position >= 0 && position < movieList.size()) {
+            return movieList.get(position);
+        }
+        return null;
+    }
+
     //Method to update the movie list using DiffUtil
     public void setMovies(List<Movie> newMovies) {
         DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new MovieDiffCallback(movieList, newMovies));
@@ -0,0 +1,134 @@
+package com.example.cineswipe;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Process-wide LRU bounded by total entry weight rather than entry count.
+//Entries keep the time their data was written so callers can tell stale from fresh
+public class MovieMemoryCache<K, V> {
+
+    public interface Weigher<V> {
+        int weigh(V value);
+    }
+
+    public static class Entry<V> {
+        private final V value;
+        private final long storedAt;
+        private final int weight;
+
+        Entry(V value, long storedAt, int weight) {
+            this.value = value;
+            this.storedAt = storedAt;
+            this.weight = weight;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public long getStoredAt() {
+            return storedAt;
+        }
+    }
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    //Same entries without access order, so peek() can look up without reordering
+    private final HashMap<K, Entry<V>> index = new HashMap<>();
+    private final Weigher<V> weigher;
+    private final int maxWeight;
+    private int totalWeight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public MovieMemoryCache(int maxWeight, Weigher<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    public synchronized Entry<V> get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return entry;
+    }
+
+    //No LRU touch and no stats, for timestamp checks
+    public synchronized Entry<V> peek(K key) {
+        return index.get(key);
+    }
+
+    //Newer data only, a slow background write must not replace what a fresh fetch just stored
+    public synchronized void put(K key, V value, long storedAt) {
+        Entry<V> existing = index.get(key);
+        if (existing != null && existing.storedAt > storedAt) {
+            return;
+        }
+        int weight = Math.max(1, weigher.weigh(value));
+        if (existing != null) {
+            entries.remove(key);
+            index.remove(key);
+            totalWeight -= existing.weight;
+        }
+        if (weight > maxWeight) {
+            return;
+        }
+        Entry<V> entry = new Entry<>(value, storedAt, weight);
+        entries.put(key, entry);
+        index.put(key, entry);
+        totalWeight += weight;
+        trimToWeight();
+    }
+
+    public synchronized void remove(K key) {
+        Entry<V> removed = entries.remove(key);
+        index.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        index.clear();
+        totalWeight = 0;
+    }
+
+    private void trimToWeight() {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (totalWeight > maxWeight && iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> eldest = iterator.next();
+            totalWeight -= eldest.getValue().weight;
+            index.remove(eldest.getKey());
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    public synchronized int getWeight() {
+        return totalWeight;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "entries=" + entries.size() + " weight=" + totalWeight + "/" + maxWeight
+                + " hits=" + hitCount + " misses=" + missCount + " evictions=" + evictionCount;
+    }
+}
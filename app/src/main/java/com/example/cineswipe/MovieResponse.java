@@ -3,6 +3,8 @@ package com.example.cineswipe;
 import java.util.List;
 
 public class MovieResponse {
+    private int page;
+    private int total_pages;
     private List<Movie> results;
     public List<Movie> getMovies() {
         return results;
@@ -10,4 +12,16 @@ public class MovieResponse {
     public void setResults(List<Movie> results) {
         this.results = results;
     }
+    public int getPage() {
+        return page;
+    }
+    public void setPage(int page) {
+        this.page = page;
+    }
+    public int getTotalPages() {
+        return total_pages;
+    }
+    public void setTotalPages(int totalPages) {
+        this.total_pages = totalPages;
+    }
 }
@@ -0,0 +1,99 @@
+package com.example.cineswipe;
+
+import android.os.Handler;
+import android.os.Looper;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+//One canonical Movie per id for the whole process. Category lists, decks and the detail cache all point at
+//the same instance, so overlapping feeds cost one object each and richer data shows up everywhere at once.
+//Values are weak, a movie no list or screen holds any more can be collected.
+//Adapters bind canonical movies on the main thread, so they are only ever merged into there; other threads
+//read them through Movie.copy()
+public class MovieStore {
+    private static final int PRUNE_EVERY = 256;
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private static final Map<String, WeakReference<Movie>> movies = new HashMap<>();
+    private static int internsSincePrune;
+
+    private MovieStore() {
+    }
+
+    public static synchronized Movie get(String movieId) {
+        WeakReference<Movie> reference = movies.get(movieId);
+        return reference != null ? reference.get() : null;
+    }
+
+    //For data read back from disk: only fills what the canonical copy is missing
+    public static synchronized Movie intern(Movie movie) {
+        return canonicalize(movie, false);
+    }
+
+    //For data just fetched from TMDB: its values win over what was known before
+    public static synchronized Movie update(Movie movie) {
+        return canonicalize(movie, true);
+    }
+
+    public static synchronized List<Movie> internAll(List<Movie> list) {
+        return canonicalizeAll(list, false);
+    }
+
+    public static synchronized List<Movie> updateAll(List<Movie> list) {
+        return canonicalizeAll(list, true);
+    }
+
+    public static synchronized int size() {
+        return movies.size();
+    }
+
+    private static List<Movie> canonicalizeAll(List<Movie> list, boolean newer) {
+        List<Movie> canonical = new ArrayList<>(list.size());
+        for (Movie movie : list) {
+            canonical.add(canonicalize(movie, newer));
+        }
+        return canonical;
+    }
+
+    private static Movie canonicalize(Movie movie, boolean newer) {
+        if (movie == null || movie.getId() == null) {
+            return movie;
+        }
+        Movie existing = get(movie.getId());
+        if (existing == null) {
+            movies.put(movie.getId(), new WeakReference<>(movie));
+            pruneIfDue();
+            return movie;
+        }
+        if (existing != movie) {
+            merge(existing, movie, newer);
+        }
+        return existing;
+    }
+
+    //Off the main thread the caller gets the canonical instance right away and its new values a moment later
+    private static void merge(Movie existing, Movie movie, boolean newer) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            existing.mergeFrom(movie, newer);
+        } else {
+            mainHandler.post(() -> existing.mergeFrom(movie, newer));
+        }
+    }
+
+    private static void pruneIfDue() {
+        if (++internsSincePrune < PRUNE_EVERY) {
+            return;
+        }
+        internsSincePrune = 0;
+        Iterator<WeakReference<Movie>> iterator = movies.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -13,7 +13,6 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.yuyakaido.android.cardstackview.CardStackLayoutManager;
 import com.yuyakaido.android.cardstackview.CardStackListener;
@@ -24,11 +23,10 @@ import com.yuyakaido.android.cardstackview.SwipeableMethod;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import java.util.Set;
 
 public class MovieSwipeActivity extends AppCompatActivity implements CardStackListener {
     private static final String TAG = "MovieSwipeActivity";
@@ -38,26 +36,54 @@ public class MovieSwipeActivity extends AppCompatActivity implements CardStackLi
     private FirebaseFirestore db;
     private FirebaseAuth auth;
     private final String API_KEY = Constants.API_KEY;
-    private List<Movie> likedMovies = new ArrayList<>();
 
-    private int currentPage = 1;
-    private boolean isLoading = false;
     private List<String> userGenres;
+    private DeckPrefetcher deckPrefetcher;
+    private DeckBlender deckBlender;
+    private static final int DECK_PAGE_SIZE = 20;
+    private SwipeRanker swipeRanker;
+    private SeenMovieFilter seenMovieFilter;
+    private SwipeJournal swipeJournal;
+    private boolean showingCachedDeck = false;
+    private static final String SNAPSHOT_NAME = "swipe";
+    //The user's genres arrive later, the blender's source names tell the decks apart
+    private static final String DECK_KEY = "blend";
+    private final Set<String> dealtMovieIds = new HashSet<>();
+    //Cursors from the restored snapshot, applied once the blender is created
+    private List<DeckSnapshot.Cursor> restoredCursors = Collections.emptyList();
+    //The two cards under the top one plus three more
+    private static final int DECK_PRELOAD_CARDS = 5;
+    private PosterPreloader posterPreloader;
+    //onCreate to the first bound card, warm or cold; see StartupTrace
+    static final String FIRST_CARD_SPAN = TAG + " first card";
+    private boolean firstCardShown = false;
 
-    private PreferencesHelper preferencesHelper;
-    private static final long CACHE_EXPIRATION = 24 * 60 * 60 * 1000; // 24 hours in milliseconds
     private boolean isOffline = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTrace.begin(FIRST_CARD_SPAN);
         setContentView(R.layout.activity_home);
 
         initializeComponents();
         setupCardStackView();
-        fetchUserPreferences();
 
-        preferencesHelper = new PreferencesHelper(this);
+        swipeRanker = SwipeRanker.getInstance(this);
+        seenMovieFilter = SeenMovieFilter.getInstance(this);
+        swipeJournal = SwipeJournal.getInstance(this);
+        restoreDeck();
+        deckPrefetcher = new DeckPrefetcher(new DeckPrefetcher.PageLoader() {
+            @Override
+            public void loadPage(DeckPrefetcher.PageCallback callback) {
+                fetchBlendedMovies(callback);
+            }
+
+            @Override
+            public int getRemainingCards() {
+                return adapter.getItemCount() - layoutManager.getTopPosition();
+            }
+        });
 
         // Check for internet connectivity
         if (isNetworkAvailable()) {
@@ -73,6 +99,7 @@ public class MovieSwipeActivity extends AppCompatActivity implements CardStackLi
         db = FirebaseFirestore.getInstance();
         cardStackView = findViewById(R.id.cardStackView);
         adapter = new MovieCardAdapter(this, new ArrayList<>());
+        adapter.setOnFirstBind(() -> StartupTrace.end(FIRST_CARD_SPAN));
     }
 
     private void setupCardStackView() {
@@ -90,6 +117,27 @@ public class MovieSwipeActivity extends AppCompatActivity implements CardStackLi
 
         cardStackView.setLayoutManager(layoutManager);
         cardStackView.setAdapter(adapter);
+        posterPreloader = new PosterPreloader(this, adapter, adapter::getMovieAt,
+                MovieCardAdapter.POSTER_OPTIONS, DECK_PRELOAD_CARDS);
+    }
+
+    //Before any network call, so the card the user left on is in the first frame
+    private void restoreDeck() {
+        DeckSnapshot snapshot = DeckSnapshot.restore(this, SNAPSHOT_NAME, DECK_KEY);
+        if (snapshot != null && snapshot.restoreInto(adapter, layoutManager, seenMovieFilter)) {
+            dealtMovieIds.addAll(snapshot.getDealtIds());
+            restoredCursors = snapshot.getCursors();
+        }
+    }
+
+    private void saveDeck() {
+        List<DeckSnapshot.Cursor> cursors = deckBlender != null ? deckBlender.getCursors() : restoredCursors;
+        List<Movie> cards = new ArrayList<>(adapter.getItemCount());
+        for (int i = 0; i < adapter.getItemCount(); i++) {
+            cards.add(adapter.getMovieAt(i));
+        }
+        DeckSnapshot.save(this, SNAPSHOT_NAME,
+                new DeckSnapshot(DECK_KEY, cards, layoutManager.getTopPosition(), cursors, dealtMovieIds));
     }
 
     private void fetchUserPreferences() {
@@ -103,20 +151,16 @@ public class MovieSwipeActivity extends AppCompatActivity implements CardStackLi
                             DocumentSnapshot document = task.getResult();
                             if (document.exists()) {
                                 userGenres = (List<String>) document.get("genres");
-                                if (userGenres != null && !userGenres.isEmpty()) {
-                                    fetchMoviesByGenres(userGenres, currentPage, false);
-                                } else {
+                                if (userGenres == null || userGenres.isEmpty()) {
                                     Log.d(TAG, "No genres found for user. Fetching default movies.");
-                                    fetchPopularMovies(currentPage, false);
                                 }
                             } else {
                                 Log.d(TAG, "No such document");
-                                fetchPopularMovies(currentPage, false);
                             }
                         } else {
                             Log.d(TAG, "Get failed with ", task.getException());
-                            fetchPopularMovies(currentPage, false);
                         }
+                        deckPrefetcher.start();
                     });
         } else {
             Log.d(TAG, "User not logged in");
@@ -124,52 +168,77 @@ public class MovieSwipeActivity extends AppCompatActivity implements CardStackLi
         }
     }
 
-    private void fetchMoviesByGenres(List<String> genres, int page, boolean isLoadingMore) {
-        if (isLoading) return;
-        isLoading = true;
-
+    private void fetchBlendedMovies(DeckPrefetcher.PageCallback callback) {
         if (isNetworkAvailable()) {
-            loadCachedMovies();
-            isLoading = false;
+            loadCachedMoviesIfEmpty();
+            callback.onPageFailed();
             return;
         }
-
-        ApiService apiService = ApiClient.getClient().create(ApiService.class);
-        Call<MovieResponse> call = apiService.getMoviesByGenres(API_KEY, String.join(",", genres), page);
-
-        call.enqueue(new Callback<MovieResponse>() {
-            @Override
-            public void onResponse(Call<MovieResponse> call, Response<MovieResponse> response) {
-                isLoading = false;
-                if (response.isSuccessful() && response.body() != null) {
-                    List<Movie> movies = response.body().getMovies();
-                    if (isLoadingMore) {
-                        adapter.addMovies(movies);
-                    } else {
-                        adapter.setMovies(movies);
-                        // Cache the movies
-                        preferencesHelper.saveMovies(movies, "popular");
-                    }
-                }
+        if (deckBlender == null) {
+            deckBlender = createDeckBlender();
+        }
+        deckBlender.next(DECK_PAGE_SIZE, movies -> {
+            if (isDestroyed()) {
+                return;
             }
-
-            @Override
-            public void onFailure(Call<MovieResponse> call, Throwable t) {
-                isLoading = false;
+            if (movies.isEmpty() && !deckBlender.isExhausted()) {
                 if (isNetworkAvailable()) {
-                    loadCachedMovies();
+                    loadCachedMoviesIfEmpty();
                 }
+                callback.onPageFailed();
+                return;
             }
+            showNetworkPage(movies);
+            callback.onPageLoaded(movies);
         });
     }
 
-    private void loadCachedMovies() {
-        List<Movie> cachedMovies = preferencesHelper.getCachedMovies("popular");
-        if (cachedMovies != null && !cachedMovies.isEmpty()) {
-            adapter.setMovies(cachedMovies);
-            Toast.makeText(this, "Showing cached movies (offline mode)", Toast.LENGTH_SHORT).show();
+    //The user's genres lead when there are any; trending, top rated and popular fill in around them
+    private DeckBlender createDeckBlender() {
+        ApiService apiService = ApiClient.getApiService();
+        DeckBlender blender = new DeckBlender(dealtMovieIds, seenMovieFilter);
+        if (userGenres != null && !userGenres.isEmpty()) {
+            String genres = String.join(",", userGenres);
+            blender.addSource("genres " + genres, 3, page -> apiService.getMoviesByGenres(API_KEY, genres, page));
+        }
+        blender.addSource("popular", 2, page -> apiService.getPopularMovies(API_KEY, "en-US", page))
+                .addSource("trending", 1, page -> apiService.getTrendingMovies(API_KEY, "en-US", page))
+                .addSource("top rated", 1, page -> apiService.getTopRatedMovies(API_KEY, "en-US", page));
+        blender.restoreCursors(restoredCursors);
+        return blender;
+    }
+
+    //Only a cached deck is ever replaced; blended pages are already free of swiped movies
+    private void showNetworkPage(List<Movie> movies) {
+        if (showingCachedDeck) {
+            showingCachedDeck = false;
+            adapter.setMovies(swipeRanker.rank(movies));
         } else {
-            Toast.makeText(this, "No cached movies available", Toast.LENGTH_SHORT).show();
+            adapter.addMoviesRanked(movies, layoutManager.getTopPosition(), swipeRanker);
+        }
+    }
+
+    //Read off the main thread; a network page that arrived meanwhile wins
+    private void loadCachedMovies() {
+        CacheHydrator.getInstance(this).loadCategory("popular", (cachedMovies, state) -> {
+            if (isDestroyed() || adapter.getItemCount() > 0) {
+                return;
+            }
+            if (cachedMovies != null && !cachedMovies.isEmpty()) {
+                //Offline, a deck of swiped movies is still better than none
+                List<Movie> unseen = seenMovieFilter.filterUnseen(cachedMovies);
+                adapter.setMovies(swipeRanker.rank(unseen.isEmpty() ? cachedMovies : unseen));
+                showingCachedDeck = true;
+                Toast.makeText(this, "Showing cached movies (offline mode)", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "No cached movies available", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    private void loadCachedMoviesIfEmpty() {
+        if (adapter.getItemCount() == 0) {
+            loadCachedMovies();
         }
     }
 
@@ -198,36 +267,27 @@ public class MovieSwipeActivity extends AppCompatActivity implements CardStackLi
     @Override
     public void onCardSwiped(Direction direction) {
         Log.d(TAG, "onCardSwiped: p=" + layoutManager.getTopPosition() + " d=" + direction);
+        Movie swiped = adapter.getMovieAt(layoutManager.getTopPosition() - 1);
+        if (swiped != null) {
+            seenMovieFilter.markSeen(swiped.getId());
+            swipeRanker.onSwiped(swiped, direction == Direction.Right);
+            swipeJournal.record(swiped.getId(), direction == Direction.Right);
+        }
 
-        if (direction == Direction.Right) {
-            int currentMovieIndex = layoutManager.getTopPosition() - 1;
-            if (currentMovieIndex >= 0 && currentMovieIndex < adapter.getItemCount()) {
-                Movie likedMovie = adapter.getMovieAt(currentMovieIndex);
-                likedMovies.add(likedMovie);
-                saveLikedMovie(likedMovie);
-                Toast.makeText(this, "Liked!", Toast.LENGTH_SHORT).show();
-            }
+        if (direction == Direction.Right && swiped != null) {
+            Toast.makeText(this, "Liked!", Toast.LENGTH_SHORT).show();
         } else if (direction == Direction.Left) {
             Toast.makeText(this, "Passed", Toast.LENGTH_SHORT).show();
         }
 
-        // Load more movies when reaching the end
-        if (layoutManager.getTopPosition() >= adapter.getItemCount() - 5) {
-            loadMoreMovies();
-        }
-    }
-
-    private void saveLikedMovie(Movie movie) {
-        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        db.collection("users").document(userId)
-                .update("likedMovies", FieldValue.arrayUnion(movie.getId()))
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "Liked movie added successfully"))
-                .addOnFailureListener(e -> Log.e(TAG, "Error adding liked movie", e));
+        deckPrefetcher.onCardSwiped();
+        cardStackView.post(() -> adapter.trimSwiped(layoutManager));
     }
 
     @Override
     public void onCardRewound() {
         Log.d(TAG, "onCardRewound: " + layoutManager.getTopPosition());
+        deckPrefetcher.onDeckChanged();
     }
 
     @Override
@@ -238,6 +298,11 @@ public class MovieSwipeActivity extends AppCompatActivity implements CardStackLi
     @Override
     public void onCardAppeared(View view, int position) {
         Log.d(TAG, "onCardAppeared: " + position);
+        posterPreloader.preloadAfter(view.findViewById(R.id.moviePoster), position);
+        if (!firstCardShown) {
+            firstCardShown = true;
+            StartupTrace.mark("first card");
+        }
     }
 
     @Override
@@ -245,50 +310,26 @@ public class MovieSwipeActivity extends AppCompatActivity implements CardStackLi
         Log.d(TAG, "onCardDisappeared: " + position);
     }
 
-    private void loadMoreMovies() {
-        currentPage++;
-        if (userGenres != null && !userGenres.isEmpty()) {
-            fetchMoviesByGenres(userGenres, currentPage, true);
-        } else {
-            fetchPopularMovies(currentPage, true);
-        }
+    @Override
+    protected void onStart() {
+        super.onStart();
+        posterPreloader.start();
     }
 
-    private void fetchPopularMovies(int page, boolean isLoadingMore) {
-        if (isLoading) return;
-        isLoading = true;
+    @Override
+    protected void onStop() {
+        super.onStop();
+        posterPreloader.stop();
+        saveDeck();
+        swipeJournal.flushSoon();
+    }
 
-        if (isNetworkAvailable()) {
-            loadCachedMovies();
-            isLoading = false;
-            return;
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        deckPrefetcher.stop();
+        if (deckBlender != null) {
+            deckBlender.cancel();
         }
-
-        ApiService apiService = ApiClient.getClient().create(ApiService.class);
-        Call<MovieResponse> call = apiService.getPopularMovies(API_KEY, "en-US", page);
-
-        call.enqueue(new Callback<MovieResponse>() {
-            @Override
-            public void onResponse(Call<MovieResponse> call, Response<MovieResponse> response) {
-                isLoading = false;
-                if (response.isSuccessful() && response.body() != null) {
-                    List<Movie> movies = response.body().getMovies();
-                    if (isLoadingMore) {
-                        adapter.addMovies(movies);
-                    } else {
-                        adapter.setMovies(movies);
-                        preferencesHelper.saveMovies(movies, "popular");
-                    }
-                }
-            }
-
-            @Override
-            public void onFailure(Call<MovieResponse> call, Throwable t) {
-                isLoading = false;
-                if (isNetworkAvailable()) {
-                    loadCachedMovies();
-                }
-            }
-        });
     }
-}
\ No newline at end of file
+}
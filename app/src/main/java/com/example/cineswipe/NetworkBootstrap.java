@@ -0,0 +1,190 @@
+package com.example.cineswipe;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+//Builds the Retrofit/ApiService graph and warms DNS + TLS/HTTP2 connections to TMDB
+//on a background thread at process start, while LoginActivity is still on screen
+public class NetworkBootstrap {
+    private static final String TAG = "NetworkBootstrap";
+    private static final String API_WARMUP_URL = "https://api.themoviedb.org/3/";
+    private static final String IMAGE_WARMUP_URL = "https://image.tmdb.org/t/p/w92/";
+    private static final String WARMUP_TAG = "warmup";
+
+    private static final AtomicBoolean started = new AtomicBoolean(false);
+    private static final AtomicBoolean firstRequestReported = new AtomicBoolean(false);
+    private static volatile boolean warmedUp = false;
+
+    //Times the first real TMDB API request so logs show the cold vs pre-warmed time-to-first-byte
+    static final EventListener.Factory EVENT_LISTENER_FACTORY = call -> {
+        if (!"api.themoviedb.org".equals(call.request().url().host()) || firstRequestReported.get()) {
+            return EventListener.NONE;
+        }
+        return firstByteListener(call, NetworkBootstrap::reportFirstRequest);
+    };
+
+    //What one call spent before its first response byte. dns and connect are -1 on a pooled connection
+    static final class FirstByte {
+        final String path;
+        final boolean prewarmed;
+        final long ttfbNanos;
+        final long dnsNanos;
+        final long connectNanos;
+
+        FirstByte(String path, boolean prewarmed, long ttfbNanos, long dnsNanos, long connectNanos) {
+            this.path = path;
+            this.prewarmed = prewarmed;
+            this.ttfbNanos = ttfbNanos;
+            this.dnsNanos = dnsNanos;
+            this.connectNanos = connectNanos;
+        }
+
+        boolean reusedConnection() {
+            return connectNanos < 0;
+        }
+
+        @Override
+        public String toString() {
+            return path + " TTFB=" + millis(ttfbNanos) + " (prewarmed=" + prewarmed
+                    + ", dns=" + (dnsNanos >= 0 ? millis(dnsNanos) : "reused")
+                    + ", connect=" + (connectNanos >= 0 ? millis(connectNanos) : "reused") + ")";
+        }
+
+        private static String millis(long nanos) {
+            return String.format(Locale.US, "%.1fms", nanos / 1_000_000.0);
+        }
+    }
+
+    private NetworkBootstrap() {
+    }
+
+    public static void start(Context context) {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        ApiClient.init(context);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.execute(() -> {
+            long startedAt = SystemClock.elapsedRealtime();
+            ApiClient.getApiService();
+            long graphReadyAt = SystemClock.elapsedRealtime();
+
+            preconnect(ApiClient.getHttpClient(), API_WARMUP_URL);
+            preconnect(ApiClient.getImageHttpClient(), IMAGE_WARMUP_URL);
+            warmedUp = true;
+
+            Log.d(TAG, "Network graph built in " + (graphReadyAt - startedAt) + "ms, connections warm after "
+                    + (SystemClock.elapsedRealtime() - startedAt) + "ms");
+        });
+        executor.shutdown();
+    }
+
+    public static boolean isWarmedUp() {
+        return warmedUp;
+    }
+
+    //Times one call up to its first response byte; warm-up calls themselves are never timed
+    static EventListener firstByteListener(Call call, Consumer<FirstByte> sink) {
+        if (WARMUP_TAG.equals(call.request().tag(String.class))) {
+            return EventListener.NONE;
+        }
+        return new FirstByteListener(sink);
+    }
+
+    private static void reportFirstRequest(FirstByte firstByte) {
+        if (firstRequestReported.compareAndSet(false, true)) {
+            Log.i(TAG, "First feed request " + firstByte);
+        }
+    }
+
+    //A HEAD request leaves a pooled TLS/HTTP2 connection behind; the status code doesn't matter
+    static void preconnect(OkHttpClient client, String url) {
+        Request request = new Request.Builder()
+                .url(url)
+                .head()
+                .tag(String.class, WARMUP_TAG)
+                .build();
+        try {
+            List<InetAddress> addresses = client.dns().lookup(request.url().host());
+            Log.d(TAG, "Resolved " + request.url().host() + " to " + addresses.size() + " addresses");
+            try (Response ignored = client.newCall(request).execute()) {
+                Log.d(TAG, "Pre-connected to " + request.url().host());
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Pre-connect to " + request.url().host() + " failed", e);
+        }
+    }
+
+    private static class FirstByteListener extends EventListener {
+        private final Consumer<FirstByte> sink;
+        private boolean prewarmed;
+        private long callStart;
+        private long dnsStart;
+        private long dnsNanos = -1;
+        private long connectStart;
+        private long connectNanos = -1;
+        private boolean reported;
+
+        FirstByteListener(Consumer<FirstByte> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void callStart(@NonNull Call call) {
+            prewarmed = warmedUp;
+            callStart = SystemClock.elapsedRealtimeNanos();
+        }
+
+        @Override
+        public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+            dnsStart = SystemClock.elapsedRealtimeNanos();
+        }
+
+        @Override
+        public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> addresses) {
+            dnsNanos = SystemClock.elapsedRealtimeNanos() - dnsStart;
+        }
+
+        @Override
+        public void connectStart(@NonNull Call call, @NonNull InetSocketAddress address, @NonNull Proxy proxy) {
+            connectStart = SystemClock.elapsedRealtimeNanos();
+        }
+
+        //Includes the TLS handshake, which OkHttp does inside connect
+        @Override
+        public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress address,
+                               @NonNull Proxy proxy, Protocol protocol) {
+            connectNanos = SystemClock.elapsedRealtimeNanos() - connectStart;
+        }
+
+        //Once per call, a retried or redirected call reports its first response only
+        @Override
+        public void responseHeadersStart(@NonNull Call call) {
+            if (reported) {
+                return;
+            }
+            reported = true;
+            sink.accept(new FirstByte(call.request().url().encodedPath(), prewarmed,
+                    SystemClock.elapsedRealtimeNanos() - callStart, dnsNanos, connectNanos));
+        }
+    }
+}
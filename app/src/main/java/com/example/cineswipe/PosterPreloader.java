@@ -0,0 +1,182 @@
+package com.example.cineswipe;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.widget.ImageView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+//Decodes the posters just past the ones on screen into Glide's memory cache, with the url, size and
+//transformations the adapter's bind will ask for, so the next card or row item shows without a placeholder.
+//Posters that fall out of the window are cancelled, and how far ahead it goes is capped by a share of
+//the memory cache so preloads never push out what is on screen. All methods must be called on the main thread
+public class PosterPreloader {
+    //Each preloader may fill at most this share of Glide's memory cache
+    private static final double MEMORY_CACHE_SHARE = 0.25;
+    //Glide decodes ARGB_8888 unless told otherwise
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final RequestManager glide;
+    private final RecyclerView.Adapter<?> adapter;
+    private final IntFunction<Movie> movies;
+    private final RequestOptions options;
+    private final int maxAhead;
+    private final long memoryBudget;
+    //Poster url -> its preload, for the current window only
+    private final Map<String, Target<Drawable>> preloads = new HashMap<>();
+    private RecyclerView row;
+    //Any bound poster will do, every item in one list has the same size
+    private ImageView sizeView;
+    private int lastShown = -1;
+    private boolean stopped = false;
+
+    private final RecyclerView.AdapterDataObserver observer = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            refresh();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            refresh();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            refresh();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            //The deck drops swiped cards from the front, the shown card moves up with them
+            if (positionStart <= lastShown) {
+                lastShown = Math.max(positionStart - 1, lastShown - itemCount);
+            }
+            refresh();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            refresh();
+        }
+    };
+
+    public PosterPreloader(Context context, RecyclerView.Adapter<?> adapter, IntFunction<Movie> movies,
+                           RequestOptions options, int maxAhead) {
+        this.glide = Glide.with(context);
+        this.adapter = adapter;
+        this.movies = movies;
+        this.options = options;
+        this.maxAhead = maxAhead;
+        this.memoryBudget = (long) (Glide.get(context).getMemoryCache().getMaxSize() * MEMORY_CACHE_SHARE);
+        adapter.registerAdapterDataObserver(observer);
+    }
+
+    //For the deck: call whenever a card comes to the top, with that card's poster view
+    public void preloadAfter(ImageView posterView, int position) {
+        sizeView = posterView;
+        lastShown = position;
+        refresh();
+    }
+
+    //For horizontal rows: preloads past the last visible item as the row scrolls
+    public void attachTo(RecyclerView row) {
+        this.row = row;
+        row.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                followRow();
+            }
+        });
+    }
+
+    //For onStop: nothing more is decoded for a screen the user left
+    public void stop() {
+        stopped = true;
+        for (Target<Drawable> target : preloads.values()) {
+            glide.clear(target);
+        }
+        preloads.clear();
+    }
+
+    //For onStart: picks up again from where the deck or row stands
+    public void start() {
+        stopped = false;
+        refresh();
+    }
+
+    private void refresh() {
+        if (row != null) {
+            //Runs after the row has laid out the change
+            row.post(this::followRow);
+        } else {
+            preloadWindow();
+        }
+    }
+
+    private void followRow() {
+        RecyclerView.LayoutManager layoutManager = row.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) {
+            return;
+        }
+        int last = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        View item = last != RecyclerView.NO_POSITION ? layoutManager.findViewByPosition(last) : null;
+        ImageView poster = item != null ? item.findViewById(R.id.moviePoster) : null;
+        if (poster != null) {
+            sizeView = poster;
+            lastShown = last;
+            preloadWindow();
+        }
+    }
+
+    private void preloadWindow() {
+        if (stopped || sizeView == null || lastShown < 0) {
+            return;
+        }
+        //The size Glide's ViewTarget will ask for, part of the memory cache key
+        int width = sizeView.getWidth() - sizeView.getPaddingLeft() - sizeView.getPaddingRight();
+        int height = sizeView.getHeight() - sizeView.getPaddingTop() - sizeView.getPaddingBottom();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        long posterBytes = (long) width * height * BYTES_PER_PIXEL;
+        int ahead = (int) Math.min(maxAhead, memoryBudget / posterBytes);
+
+        Set<String> wanted = new LinkedHashSet<>();
+        int end = Math.min(adapter.getItemCount(), lastShown + 1 + ahead);
+        for (int position = lastShown + 1; position < end; position++) {
+            Movie movie = movies.apply(position);
+            String url = movie != null ? TmdbImageUrls.posterFor(sizeView, movie.getPosterPath()) : null;
+            if (url != null) {
+                wanted.add(url);
+            }
+        }
+
+        Iterator<Map.Entry<String, Target<Drawable>>> iterator = preloads.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Target<Drawable>> entry = iterator.next();
+            if (!wanted.contains(entry.getKey())) {
+                //Done preloads already sit in the memory cache, this only stops the pending ones
+                glide.clear(entry.getValue());
+                iterator.remove();
+            }
+        }
+        for (String url : wanted) {
+            if (!preloads.containsKey(url)) {
+                preloads.put(url, glide.load(url).apply(options).preload(width, height));
+            }
+        }
+    }
+}
@@ -1,60 +1,129 @@
 package com.example.cineswipe;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import java.lang.reflect.Type;
+import android.util.Log;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+//Facade over MovieDatabase, kept so the activities don't care where the cache lives.
+//A process-wide memory tier sits in front of it so moving between screens never re-decodes a list,
+//and everything it hands out is the canonical MovieStore instance
 public class PreferencesHelper {
-    private static final String PREF_NAME = "CineSwipePrefs";
-    private static final String KEY_MOVIES = "cached_movies";
-    private static final String KEY_MOVIE_DETAILS = "cached_movie_details";
-    private static final String KEY_LAST_UPDATE = "last_update_time";
-    private final SharedPreferences preferences;
-    private final Gson gson;
+    private static final String TAG = "PreferencesHelper";
+    //Weights are in movies, roughly twenty home screen pages plus a few hundred detail screens
+    private static final int CATEGORY_CACHE_WEIGHT = 400;
+    private static final int DETAIL_CACHE_WEIGHT = 300;
+
+    private static final MovieMemoryCache<String, List<Movie>> categoryCache =
+            new MovieMemoryCache<>(CATEGORY_CACHE_WEIGHT, List::size);
+    private static final MovieMemoryCache<String, Movie> detailCache =
+            new MovieMemoryCache<>(DETAIL_CACHE_WEIGHT, movie -> 1);
+    //Learned soft TTL per category, mirrors categories.soft_ttl
+    private static final Map<String, Long> learnedSoftTtls = new ConcurrentHashMap<>();
+
+    private final Context appContext;
+    private final MovieDatabase database;
+    private final CachePolicy policy;
 
     public PreferencesHelper(Context context) {
-        preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        gson = new Gson();
+        appContext = context.getApplicationContext();
+        database = MovieDatabase.getInstance(context);
+        policy = CachePolicy.getInstance();
     }
 
     public void saveMovies(List<Movie> movies, String category) {
-        String moviesJson = gson.toJson(movies);
-        preferences.edit()
-                .putString(KEY_MOVIES + "_" + category, moviesJson)
-                .putLong(KEY_LAST_UPDATE + "_" + category, System.currentTimeMillis())
-                .apply();
+        List<Movie> snapshot = Collections.unmodifiableList(MovieStore.internAll(movies));
+        long now = policy.now();
+        categoryCache.put(category, snapshot, now);
+        SimilarityIndex.getInstance(appContext).addAll(snapshot);
+        MovieDatabase.runWrite(() ->
+                learnedSoftTtls.put(category, database.replaceCategory(category, snapshot, now, policy)));
     }
 
+    //Returns right away. Anything but FRESH also starts one background revalidation,
+    //whose result arrives through CategoryRefresher.Listener
     public List<Movie> getCachedMovies(String category) {
-        String moviesJson = preferences.getString(KEY_MOVIES + "_" + category, null);
-        if (moviesJson != null) {
-            Type type = new TypeToken<List<Movie>>(){}.getType();
-            return gson.fromJson(moviesJson, type);
+        return getCachedMovies(category, true);
+    }
+
+    public List<Movie> getCachedMovies(String category, boolean revalidate) {
+        MovieMemoryCache.Entry<List<Movie>> entry = categoryCache.get(category);
+        List<Movie> movies = null;
+        long storedAt = -1;
+        if (entry != null) {
+            movies = entry.getValue();
+            storedAt = entry.getStoredAt();
+        } else {
+            List<Movie> stored = database.getCategory(category);
+            if (stored != null) {
+                storedAt = database.getCategoryUpdatedAt(category);
+                movies = Collections.unmodifiableList(MovieStore.internAll(stored));
+                categoryCache.put(category, movies, storedAt);
+            }
+        }
+        if (revalidate && stateOf(category, storedAt) != CachePolicy.State.FRESH) {
+            CategoryRefresher.getInstance(appContext).refresh(category);
+        }
+        return movies;
+    }
+
+    public CachePolicy.State getCategoryState(String category) {
+        MovieMemoryCache.Entry<List<Movie>> entry = categoryCache.peek(category);
+        return stateOf(category, entry != null ? entry.getStoredAt() : database.getCategoryUpdatedAt(category));
+    }
+
+    private CachePolicy.State stateOf(String category, long storedAt) {
+        Long softTtl = learnedSoftTtls.get(category);
+        if (softTtl == null && storedAt >= 0) {
+            softTtl = database.getCategorySoftTtl(category);
+            learnedSoftTtls.put(category, softTtl);
         }
-        return null;
+        return policy.categoryState(category, storedAt, softTtl != null ? softTtl : 0);
     }
 
-    public void saveMovieDetails(Movie movie) {
-        String movieJson = gson.toJson(movie);
-        preferences.edit()
-                .putString(KEY_MOVIE_DETAILS + "_" + movie.getId(), movieJson)
-                .putLong(KEY_LAST_UPDATE + "_" + movie.getId(), System.currentTimeMillis())
-                .apply();
+    //Details are the richest copy, they upgrade the canonical movie every list points at
+    public Movie saveMovieDetails(Movie movie) {
+        Movie canonical = MovieStore.update(movie);
+        long now = policy.now();
+        detailCache.put(movie.getId(), canonical, now);
+        SimilarityIndex.getInstance(appContext).addAll(Collections.singletonList(canonical));
+        MovieDatabase.runWrite(() -> database.getDetailStore().put(movie, now));
+        return canonical;
     }
 
     public Movie getCachedMovieDetails(String movieId) {
-        String movieJson = preferences.getString(KEY_MOVIE_DETAILS + "_" + movieId, null);
-        if (movieJson != null) {
-            return gson.fromJson(movieJson, Movie.class);
+        MovieMemoryCache.Entry<Movie> entry = detailCache.get(movieId);
+        if (entry != null) {
+            return entry.getValue();
         }
-        return null;
+        Movie movie = database.getDetailStore().get(movieId);
+        if (movie != null) {
+            movie = MovieStore.intern(movie);
+            detailCache.put(movieId, movie, database.getDetailStore().getUpdatedAt(movieId));
+        }
+        return movie;
+    }
+
+    public CachePolicy.State getDetailsState(String movieId) {
+        MovieMemoryCache.Entry<Movie> entry = detailCache.peek(movieId);
+        return policy.detailsState(entry != null ? entry.getStoredAt() : database.getDetailStore().getUpdatedAt(movieId));
+    }
+
+    public static void logMemoryStats() {
+        Log.d(TAG, "Category cache: " + categoryCache + ", detail cache: " + detailCache);
+    }
+
+    public MovieDetailStore.Stats getDetailStoreStats() {
+        return database.getDetailStore().getStats();
+    }
+
+    static MovieMemoryCache<String, List<Movie>> getCategoryCache() {
+        return categoryCache;
     }
 
-    public boolean isCacheExpired(String category, long expirationTime) {
-        long lastUpdateTime = preferences.getLong(KEY_LAST_UPDATE + "_" + category, 0);
-        return System.currentTimeMillis() - lastUpdateTime <= expirationTime;
+    static MovieMemoryCache<String, Movie> getDetailCache() {
+        return detailCache;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package com.example.cineswipe;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+//Token bucket in front of the network so bursts (genre fan-out, prefetch) stay under TMDB's per-IP limit.
+//Registered last in the application chain: a throttled call waits before OkHttp takes a connection for it,
+//and every retry attempt takes its own token. Cache hits spend a token too, the burst covers a screen of them
+public class RateLimitInterceptor implements Interceptor {
+    private final int capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public RateLimitInterceptor(int capacity, double tokensPerSecond) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        //Stale-cache fallbacks never reach TMDB
+        if (chain.request().cacheControl().onlyIfCached()) {
+            return chain.proceed(chain.request());
+        }
+        long waitNanos;
+        while ((waitNanos = reserve()) > 0) {
+            try {
+                Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a rate limit token");
+            }
+            if (chain.call().isCanceled()) {
+                throw new IOException("Canceled");
+            }
+        }
+        return chain.proceed(chain.request());
+    }
+
+    //Takes a token and returns 0, or returns how long to wait for the next one
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
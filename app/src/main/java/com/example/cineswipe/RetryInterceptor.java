@@ -0,0 +1,99 @@
+package com.example.cineswipe;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Date;
+import java.util.Random;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+//Retries GETs on 429/5xx and I/O errors with full-jitter exponential backoff, honouring Retry-After.
+//Waits are capped so a throttled request fails in bounded time instead of hanging
+public class RetryInterceptor implements Interceptor {
+    private static final String TAG = "RetryInterceptor";
+    private static final long BASE_DELAY_MS = 500;
+    private static final long MAX_DELAY_MS = 8000;
+
+    private final int maxRetries;
+    private final Random random = new Random();
+
+    public RetryInterceptor(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"GET".equals(request.method())) {
+            return chain.proceed(request);
+        }
+
+        for (int attempt = 0; ; attempt++) {
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                if (attempt >= maxRetries || chain.call().isCanceled()) {
+                    throw e;
+                }
+                sleep(backoff(attempt));
+                continue;
+            }
+
+            if (!isRetryable(response.code()) || attempt >= maxRetries) {
+                return response;
+            }
+
+            long delay = retryAfterMillis(response);
+            if (delay < 0) {
+                delay = backoff(attempt);
+            } else if (delay > MAX_DELAY_MS) {
+                //TMDB wants us gone for longer than we are willing to block a caller
+                return response;
+            }
+            Log.d(TAG, "HTTP " + response.code() + " for " + request.url().encodedPath()
+                    + ", retry " + (attempt + 1) + " in " + delay + "ms");
+            response.close();
+            sleep(delay);
+            if (chain.call().isCanceled()) {
+                throw new IOException("Canceled");
+            }
+        }
+    }
+
+    static boolean isRetryable(int code) {
+        return code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    private long backoff(int attempt) {
+        long ceiling = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << attempt);
+        return (long) (random.nextDouble() * ceiling);
+    }
+
+    //Retry-After is either delta-seconds or an HTTP date; -1 when absent or unparseable
+    static long retryAfterMillis(Response response) {
+        String value = response.header("Retry-After");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            Date date = response.headers().getDate("Retry-After");
+            return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : -1;
+        }
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during retry backoff");
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.cineswipe;
+
+import android.content.Context;
+import android.os.StrictMode;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+//Every movie the user has swiped either way, so decks never repeat across sessions.
+//TMDB ids are dense integers, so this is one bit per id in a memory-mapped file: exact, O(1),
+//and about 190KB for today's id range no matter how many titles were swiped.
+//Writes land in the shared mapping, the kernel flushes them even if the process is killed
+public class SeenMovieFilter {
+    private static final String TAG = "SeenMovieFilter";
+    private static final String FILE_NAME = "seen_movies.bits";
+    //The file grows in 64KB steps, 524288 ids each
+    private static final int CHUNK_BYTES = 64 * 1024;
+    //Guards the file against a bogus id, 8MB at most
+    private static final int MAX_ID = (1 << 26) - 1;
+
+    private static SeenMovieFilter instance;
+
+    private final File file;
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer bits;
+    private int count;
+
+    SeenMovieFilter(File file) {
+        this.file = file;
+        open();
+    }
+
+    //Maps the file on first use; CacheHydrator.start() warms it off the main thread
+    public static synchronized SeenMovieFilter getInstance(Context context) {
+        if (instance == null) {
+            instance = new SeenMovieFilter(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    public synchronized boolean contains(String movieId) {
+        int id = parseId(movieId);
+        if (id < 0 || bits == null || (id >>> 3) >= bits.capacity()) {
+            return false;
+        }
+        return (bits.get(id >>> 3) & (1 << (id & 7))) != 0;
+    }
+
+    public synchronized void markSeen(String movieId) {
+        int id = parseId(movieId);
+        if (id < 0 || !ensureCapacity(id >>> 3)) {
+            return;
+        }
+        int index = id >>> 3;
+        byte current = bits.get(index);
+        byte updated = (byte) (current | (1 << (id & 7)));
+        if (updated != current) {
+            bits.put(index, updated);
+            count++;
+        }
+    }
+
+    //Keeps the order, drops anything already swiped
+    public synchronized List<Movie> filterUnseen(List<Movie> movies) {
+        List<Movie> unseen = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            if (!contains(movie.getId())) {
+                unseen.add(movie);
+            }
+        }
+        return unseen;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    //Opening and growing are deliberate main-thread I/O when a deck gets here before CacheHydrator:
+    //a swipe can't wait for an executor, and both touch at most one 64KB chunk
+    private void open() {
+        StrictMode.ThreadPolicy policy = StrictMode.allowThreadDiskWrites();
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            long length = randomAccessFile.length();
+            if (length > 0) {
+                map(length);
+                for (int i = 0; i < bits.capacity(); i++) {
+                    count += Integer.bitCount(bits.get(i) & 0xff);
+                }
+            }
+            Log.d(TAG, count + " swiped movies in " + length + " bytes");
+        } catch (IOException e) {
+            Log.e(TAG, "Could not open " + file, e);
+            bits = null;
+        } finally {
+            StrictMode.setThreadPolicy(policy);
+        }
+    }
+
+    private boolean ensureCapacity(int byteIndex) {
+        if (bits != null && byteIndex < bits.capacity()) {
+            return true;
+        }
+        if (randomAccessFile == null) {
+            return false;
+        }
+        long length = ((long) byteIndex / CHUNK_BYTES + 1) * CHUNK_BYTES;
+        StrictMode.ThreadPolicy policy = StrictMode.allowThreadDiskWrites();
+        try {
+            randomAccessFile.setLength(length);
+            map(length);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not grow " + file + " to " + length + " bytes", e);
+            return false;
+        } finally {
+            StrictMode.setThreadPolicy(policy);
+        }
+    }
+
+    private void map(long length) throws IOException {
+        bits = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+    }
+
+    //Movies without a numeric TMDB id are never filtered
+    private static int parseId(String movieId) {
+        if (movieId == null || movieId.isEmpty() || movieId.length() > 9) {
+            return -1;
+        }
+        int id = 0;
+        for (int i = 0; i < movieId.length(); i++) {
+            int digit = movieId.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            id = id * 10 + digit;
+        }
+        return id <= MAX_ID ? id : -1;
+    }
+}
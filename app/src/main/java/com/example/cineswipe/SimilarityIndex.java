@@ -0,0 +1,324 @@
+package com.example.cineswipe;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//"More like this" over every cached movie, without a network call. A movie is a sparse vector of
+//genre ids, cast ids and TF-IDF weighted overview words; an inverted index from term to movies
+//scores only the movies sharing a term with the query, and a size-k heap keeps the best cosines.
+//Built from the database on first use and kept current as pages are saved. All index state is
+//confined to one background thread, results are posted to the main thread
+public class SimilarityIndex {
+    private static final String TAG = "SimilarityIndex";
+    public static final int DEFAULT_RESULTS = 12;
+
+    //Genres are broad, a shared actor says more than a shared genre or word
+    private static final float GENRE_WEIGHT = 1.0f;
+    private static final float CAST_WEIGHT = 1.5f;
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final int MAX_CAST_TERMS = 8;
+    private static final int MIN_WORD_LENGTH = 3;
+    //Keeps the postings small; repeated and longer words are the more telling ones
+    private static final int MAX_WORD_TERMS = 20;
+    //Words in more than this share of movies are as good as stopwords, skipped when querying
+    private static final double MAX_QUERY_DF = 0.2;
+    private static final Set<String> STOPWORDS = new HashSet<>(Arrays.asList(
+            "the", "and", "for", "with", "his", "her", "their", "they", "them", "this", "that", "from",
+            "into", "when", "who", "whom", "what", "where", "which", "while", "after", "before", "has",
+            "have", "had", "but", "not", "are", "was", "were", "its", "out", "about", "one", "two",
+            "him", "she", "himself", "herself", "only", "must", "will", "can", "all", "more", "most",
+            "than", "then", "also", "over", "under", "between", "through", "during", "find", "finds",
+            "new", "own", "life", "world", "story", "film", "movie"));
+
+    public interface Callback {
+        void onSimilar(List<Movie> movies);
+    }
+
+    private static SimilarityIndex instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MovieDatabase database;
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<Postings> postings = new ArrayList<>();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final List<String> docMovieIds = new ArrayList<>();
+    //Term ids per live document, so a replacement can fix up document frequencies
+    private final List<int[]> docTerms = new ArrayList<>();
+    private int[] docHashes = new int[1024];
+    private float[] docNorms = new float[1024];
+    //Replaced documents stay in the postings and are skipped
+    private boolean[] docDeleted = new boolean[1024];
+    private int liveDocs = 0;
+    private boolean built = false;
+
+    private static class Postings {
+        int[] docs = new int[4];
+        float[] weights = new float[4];
+        int size;
+        //Live documents containing the term
+        int df;
+
+        void add(int doc, float weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = weight;
+            size++;
+            df++;
+        }
+    }
+
+    SimilarityIndex(MovieDatabase database) {
+        this.database = database;
+    }
+
+    public static synchronized SimilarityIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new SimilarityIndex(MovieDatabase.getInstance(context));
+        }
+        return instance;
+    }
+
+    //Called whenever movies are cached; until the index is first built the database has them anyway
+    public void addAll(List<Movie> movies) {
+        List<Movie> copy = new ArrayList<>(movies);
+        executor.execute(() -> {
+            if (built) {
+                for (Movie movie : copy) {
+                    add(movie);
+                }
+            }
+        });
+    }
+
+    public void findSimilar(Movie movie, int count, Callback callback) {
+        executor.execute(() -> {
+            List<Movie> similar = Collections.emptyList();
+            try {
+                ensureBuilt();
+                similar = resolve(query(movie, count));
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Similarity lookup for " + movie.getId() + " failed", e);
+            }
+            List<Movie> result = similar;
+            mainHandler.post(() -> callback.onSimilar(result));
+        });
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        long start = System.nanoTime();
+        database.forEachMovie(this::add);
+        built = true;
+        Log.d(TAG, "Indexed " + liveDocs + " movies, " + termIds.size() + " terms in "
+                + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    //A movie seen again (say with details this time) replaces its earlier document
+    void add(Movie movie) {
+        String movieId = movie.getId();
+        if (movieId == null) {
+            return;
+        }
+        Map<String, Float> terms = terms(movie);
+        if (terms.isEmpty()) {
+            return;
+        }
+        //Every refresh saves the same pages again, only a changed movie is worth a new document
+        int hash = terms.hashCode();
+        Integer previous = docIds.get(movieId);
+        if (previous != null) {
+            if (docHashes[previous] == hash) {
+                return;
+            }
+            remove(previous);
+        }
+
+        int doc = docMovieIds.size();
+        docMovieIds.add(movieId);
+        docIds.put(movieId, doc);
+        if (doc == docNorms.length) {
+            docNorms = Arrays.copyOf(docNorms, doc * 2);
+            docDeleted = Arrays.copyOf(docDeleted, doc * 2);
+            docHashes = Arrays.copyOf(docHashes, doc * 2);
+        }
+        docHashes[doc] = hash;
+        liveDocs++;
+        int[] termIdsOfDoc = new int[terms.size()];
+        int termCount = 0;
+
+        //IDF as of insertion; it drifts as the index grows, which only nudges old norms slightly
+        double normSquared = 0;
+        for (Map.Entry<String, Float> entry : terms.entrySet()) {
+            Integer termId = termIds.get(entry.getKey());
+            if (termId == null) {
+                termId = postings.size();
+                termIds.put(entry.getKey(), termId);
+                postings.add(new Postings());
+            }
+            Postings list = postings.get(termId);
+            list.add(doc, entry.getValue());
+            termIdsOfDoc[termCount++] = termId;
+            double weight = entry.getValue() * idf(list.df);
+            normSquared += weight * weight;
+        }
+        docTerms.add(termIdsOfDoc);
+        docNorms[doc] = (float) Math.sqrt(normSquared);
+    }
+
+    private void remove(int doc) {
+        docDeleted[doc] = true;
+        liveDocs--;
+        for (int termId : docTerms.get(doc)) {
+            postings.get(termId).df--;
+        }
+        docTerms.set(doc, null);
+    }
+
+    //Top-k documents by cosine, the query movie itself excluded
+    int[] query(Movie movie, int count) {
+        Map<String, Float> terms = terms(movie);
+        int docCount = docMovieIds.size();
+        float[] scores = new float[docCount];
+        int[] touched = new int[Math.min(docCount, 4096)];
+        int touchedCount = 0;
+        double queryNormSquared = 0;
+
+        for (Map.Entry<String, Float> entry : terms.entrySet()) {
+            Integer termId = termIds.get(entry.getKey());
+            if (termId == null) {
+                continue;
+            }
+            Postings list = postings.get(termId);
+            double idf = idf(list.df);
+            double queryWeight = entry.getValue() * idf;
+            queryNormSquared += queryWeight * queryWeight;
+            if (list.df > MAX_QUERY_DF * liveDocs && entry.getKey().startsWith("w")) {
+                continue;
+            }
+            float factor = (float) (queryWeight * idf);
+            for (int i = 0; i < list.size; i++) {
+                int doc = list.docs[i];
+                if (scores[doc] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += list.weights[i] * factor;
+            }
+        }
+        if (queryNormSquared == 0) {
+            return new int[0];
+        }
+
+        Integer self = docIds.get(movie.getId());
+        PriorityQueue<float[]> heap = new PriorityQueue<>(count + 1, (a, b) -> Float.compare(a[0], b[0]));
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            if (docDeleted[doc] || (self != null && doc == self) || docNorms[doc] == 0) {
+                continue;
+            }
+            float cosine = scores[doc] / docNorms[doc];
+            if (heap.size() < count) {
+                heap.add(new float[]{cosine, doc});
+            } else if (cosine > heap.peek()[0]) {
+                heap.poll();
+                heap.add(new float[]{cosine, doc});
+            }
+        }
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = (int) heap.poll()[1];
+        }
+        return result;
+    }
+
+    private List<Movie> resolve(int[] docs) {
+        List<Movie> movies = new ArrayList<>(docs.length);
+        for (int doc : docs) {
+            String movieId = docMovieIds.get(doc);
+            Movie movie = MovieStore.get(movieId);
+            if (movie == null) {
+                movie = database.getMovie(movieId);
+            }
+            if (movie != null) {
+                movies.add(MovieStore.intern(movie));
+            }
+        }
+        return movies;
+    }
+
+    private double idf(int df) {
+        return Math.log(1 + (double) liveDocs / Math.max(1, df));
+    }
+
+    //Term -> weight before IDF: fixed weights for genres and cast, log-scaled counts for words
+    static Map<String, Float> terms(Movie shared) {
+        //Runs on the index thread, canonical movies are merged into on the main thread
+        Movie movie = shared.copy();
+        Map<String, Float> terms = new HashMap<>();
+        for (int genreId : movie.getGenreIds()) {
+            terms.put("g" + genreId, GENRE_WEIGHT);
+        }
+        List<CastMember> cast = movie.getCastList();
+        if (cast != null) {
+            for (int i = 0; i < cast.size() && i < MAX_CAST_TERMS; i++) {
+                if (cast.get(i).getId() != 0) {
+                    terms.put("c" + cast.get(i).getId(), CAST_WEIGHT);
+                }
+            }
+        }
+        String overview = movie.getOverview();
+        if (overview != null) {
+            Map<String, Integer> counts = new HashMap<>();
+            int length = overview.length();
+            int start = -1;
+            for (int i = 0; i <= length; i++) {
+                boolean letter = i < length && Character.isLetter(overview.charAt(i));
+                if (letter && start < 0) {
+                    start = i;
+                } else if (!letter && start >= 0) {
+                    if (i - start >= MIN_WORD_LENGTH) {
+                        String word = overview.substring(start, i).toLowerCase();
+                        if (!STOPWORDS.contains(word)) {
+                            Integer count = counts.get(word);
+                            counts.put(word, count != null ? count + 1 : 1);
+                        }
+                    }
+                    start = -1;
+                }
+            }
+            List<Map.Entry<String, Integer>> words = new ArrayList<>(counts.entrySet());
+            if (words.size() > MAX_WORD_TERMS) {
+                Collections.sort(words, (a, b) -> a.getValue().equals(b.getValue())
+                        ? b.getKey().length() - a.getKey().length()
+                        : b.getValue() - a.getValue());
+                words = words.subList(0, MAX_WORD_TERMS);
+            }
+            for (Map.Entry<String, Integer> entry : words) {
+                terms.put("w" + entry.getKey(), (float) (WORD_WEIGHT * (1 + Math.log(entry.getValue()))));
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.cineswipe;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+//Logs milestones of a cold start against the process start time, each one only once per process.
+//Filter logcat by "StartupTrace" to see time-to-first-row.
+//Spans time a screen from onCreate to a point such as its first bound card, every time the screen is
+//created: the first run of a span in a process is cold, later runs are warm
+public class StartupTrace {
+    private static final String TAG = "StartupTrace";
+    private static final Set<String> marked = new HashSet<>();
+    private static final Map<String, Long> spanStarts = new HashMap<>();
+    private static final Set<String> endedSpans = new HashSet<>();
+    private static SpanListener spanListener;
+
+    //Test hook, told about every span that ends
+    interface SpanListener {
+        void onSpanEnded(String span, long millis, boolean cold);
+    }
+
+    private StartupTrace() {
+    }
+
+    public static void mark(String event) {
+        synchronized (marked) {
+            if (!marked.add(event)) {
+                return;
+            }
+        }
+        long sinceStart = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+        Log.i(TAG, event + " at +" + sinceStart + "ms (" + Thread.currentThread().getName() + ")");
+    }
+
+    public static synchronized void begin(String span) {
+        spanStarts.put(span, SystemClock.elapsedRealtime());
+    }
+
+    //Only the first end() after a begin() counts
+    public static void end(String span) {
+        long millis;
+        boolean cold;
+        SpanListener listener;
+        synchronized (StartupTrace.class) {
+            Long startedAt = spanStarts.remove(span);
+            if (startedAt == null) {
+                return;
+            }
+            millis = SystemClock.elapsedRealtime() - startedAt;
+            cold = endedSpans.add(span);
+            listener = spanListener;
+        }
+        Log.i(TAG, span + " took " + millis + "ms (" + (cold ? "cold" : "warm") + ")");
+        if (listener != null) {
+            listener.onSpanEnded(span, millis, cold);
+        }
+    }
+
+    static synchronized void setSpanListener(SpanListener listener) {
+        spanListener = listener;
+    }
+}
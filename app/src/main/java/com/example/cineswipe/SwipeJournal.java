@@ -0,0 +1,369 @@
+package com.example.cineswipe;
+
+import android.content.Context;
+import android.util.Log;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+//Every like and pass goes to an append-only file first and reaches Firestore in WriteBatch commits,
+//once enough swipes are pending or the oldest has waited long enough. The committed offset is kept
+//next to the journal, so swipes made before a crash or without a session are sent on the next run.
+//All state lives on one scheduled thread
+public class SwipeJournal {
+    private static final String TAG = "SwipeJournal";
+    private static final String JOURNAL_FILE = "swipe_journal.log";
+    private static final String ACK_FILE = "swipe_journal.ack";
+    //Firestore allows 500 writes per batch, one is the likedMovies update
+    private static final int MAX_BATCH_SWIPES = 400;
+    private static final int FLUSH_AT_SWIPES = 50;
+    private static final long FLUSH_DELAY_MS = 10_000;
+    private static final long RETRY_DELAY_MS = 2_000;
+    private static final long MAX_RETRY_DELAY_MS = 5 * 60_000;
+    //Offline, Firestore queues the batch and commit() doesn't complete until it reconnects.
+    //Past this the batch counts as failed and is sent again later; every write is keyed, so resending is harmless
+    private static final long COMMIT_TIMEOUT_MS = 30_000;
+
+    private static SwipeJournal instance;
+
+    private static class Entry {
+        final String userId;
+        final String movieId;
+        final boolean liked;
+        final long swipedAt;
+        //Journal offset just past this entry
+        final long endOffset;
+
+        Entry(String userId, String movieId, boolean liked, long swipedAt, long endOffset) {
+            this.userId = userId;
+            this.movieId = movieId;
+            this.liked = liked;
+            this.swipedAt = swipedAt;
+            this.endOffset = endOffset;
+        }
+    }
+
+    //Told which movies each committed batch carried, for tests
+    interface CommitListener {
+        void onBatchCommitted(List<String> movieIds);
+    }
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final FirebaseAuth auth;
+    private final FirebaseFirestore firestore;
+    private final File journalFile;
+    private final File ackFile;
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    private final long commitTimeoutMs;
+    private long journalLength;
+    private boolean committing = false;
+    //Bumped per commit, a completion arriving after its timeout is ignored
+    private int commitGeneration = 0;
+    private ScheduledFuture<?> commitTimeout;
+    private CommitListener commitListener;
+    private ScheduledFuture<?> scheduledFlush;
+    private int consecutiveFailures = 0;
+
+    SwipeJournal(File dir, long commitTimeoutMs, FirebaseAuth auth, FirebaseFirestore firestore) {
+        this.auth = auth;
+        this.firestore = firestore;
+        journalFile = new File(dir, JOURNAL_FILE);
+        ackFile = new File(dir, ACK_FILE);
+        this.commitTimeoutMs = commitTimeoutMs;
+        executor.execute(this::recover);
+    }
+
+    public static synchronized SwipeJournal getInstance(Context context) {
+        if (instance == null) {
+            instance = new SwipeJournal(context.getApplicationContext().getFilesDir(), COMMIT_TIMEOUT_MS,
+                    FirebaseAuth.getInstance(), FirebaseFirestore.getInstance());
+        }
+        return instance;
+    }
+
+    //Safe from the main thread, the swipe is written to disk and sent later.
+    //Without a signed-in user there is nobody to attribute it to, so it is dropped
+    public void record(String movieId, boolean liked) {
+        FirebaseUser user = auth.getCurrentUser();
+        if (user == null || movieId == null) {
+            Log.w(TAG, "Dropping swipe on " + movieId + ", no signed-in user");
+            return;
+        }
+        String userId = user.getUid();
+        long swipedAt = System.currentTimeMillis();
+        executor.execute(() -> append(userId, movieId, liked, swipedAt));
+    }
+
+    //For onStop: sends whatever is pending without waiting for the batch to fill
+    public void flushSoon() {
+        executor.execute(() -> {
+            if (consecutiveFailures == 0) {
+                flush();
+            }
+        });
+    }
+
+    private void append(String userId, String movieId, boolean liked, long swipedAt) {
+        String line = userId + '\t' + movieId + '\t' + (liked ? 'L' : 'P') + '\t' + swipedAt + '\n';
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not journal swipe on " + movieId, e);
+            return;
+        }
+        journalLength += bytes.length;
+        pending.add(new Entry(userId, movieId, liked, swipedAt, journalLength));
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (committing || pending.isEmpty()) {
+            return;
+        }
+        if (pending.size() >= FLUSH_AT_SWIPES && consecutiveFailures == 0) {
+            flush();
+        } else if (scheduledFlush == null) {
+            long delay = consecutiveFailures == 0 ? FLUSH_DELAY_MS
+                    : Math.min(MAX_RETRY_DELAY_MS, RETRY_DELAY_MS << Math.min(consecutiveFailures - 1, 8));
+            scheduledFlush = executor.schedule(() -> {
+                scheduledFlush = null;
+                flush();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        if (committing || pending.isEmpty()) {
+            return;
+        }
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        FirebaseUser user = auth.getCurrentUser();
+        if (user == null) {
+            //Session expired, keep everything until someone signs in again
+            onCommitFailed(null);
+            return;
+        }
+        String userId = user.getUid();
+
+        //Oldest first, one user's swipes per batch; anything journalled for another account can't be sent
+        List<Entry> batchEntries = new ArrayList<>();
+        Map<String, Entry> latestPerMovie = new HashMap<>();
+        for (Entry entry : pending) {
+            if (batchEntries.size() >= MAX_BATCH_SWIPES) {
+                break;
+            }
+            batchEntries.add(entry);
+            if (entry.userId.equals(userId)) {
+                latestPerMovie.put(entry.movieId, entry);
+            }
+        }
+        if (latestPerMovie.isEmpty()) {
+            Log.w(TAG, "Discarding " + batchEntries.size() + " swipes journalled for another account");
+            onCommitted(batchEntries);
+            return;
+        }
+
+        DocumentReference userDoc = firestore.collection("users").document(userId);
+        WriteBatch batch = firestore.batch();
+        List<Object> likedIds = new ArrayList<>();
+        //Keyed by movie id, so a retried batch rewrites the same documents instead of adding more
+        for (Entry entry : latestPerMovie.values()) {
+            Map<String, Object> swipe = new HashMap<>();
+            swipe.put("liked", entry.liked);
+            swipe.put("swipedAt", entry.swipedAt);
+            batch.set(userDoc.collection("swipes").document(entry.movieId), swipe);
+            if (entry.liked) {
+                likedIds.add(entry.movieId);
+            }
+        }
+        if (!likedIds.isEmpty()) {
+            Map<String, Object> likes = new HashMap<>();
+            likes.put("likedMovies", FieldValue.arrayUnion(likedIds.toArray()));
+            batch.set(userDoc, likes, SetOptions.merge());
+        }
+
+        committing = true;
+        int generation = ++commitGeneration;
+        commitTimeout = executor.schedule(() -> {
+            if (committing && generation == commitGeneration) {
+                committing = false;
+                onCommitFailed(new TimeoutException("No answer to the swipe batch in " + commitTimeoutMs + "ms"));
+            }
+        }, commitTimeoutMs, TimeUnit.MILLISECONDS);
+        batch.commit().addOnCompleteListener(executor, task -> {
+            if (!committing || generation != commitGeneration) {
+                //Timed out, these swipes are still pending and go in a later batch
+                return;
+            }
+            committing = false;
+            commitTimeout.cancel(false);
+            if (task.isSuccessful()) {
+                Log.d(TAG, "Committed " + batchEntries.size() + " swipes, " + (pending.size() - batchEntries.size()) + " pending");
+                notifyCommitted(batchEntries);
+                onCommitted(batchEntries);
+            } else {
+                onCommitFailed(task.getException());
+            }
+        });
+    }
+
+    private void onCommitted(List<Entry> committed) {
+        consecutiveFailures = 0;
+        for (int i = 0; i < committed.size(); i++) {
+            pending.poll();
+        }
+        if (pending.isEmpty()) {
+            truncate();
+        } else {
+            writeAck(committed.get(committed.size() - 1).endOffset);
+        }
+        scheduleFlush();
+    }
+
+    private void notifyCommitted(List<Entry> committed) {
+        if (commitListener == null) {
+            return;
+        }
+        List<String> movieIds = new ArrayList<>(committed.size());
+        for (Entry entry : committed) {
+            movieIds.add(entry.movieId);
+        }
+        commitListener.onBatchCommitted(movieIds);
+    }
+
+    private void onCommitFailed(Exception e) {
+        consecutiveFailures++;
+        Log.w(TAG, "Swipe batch failed " + consecutiveFailures + " times, " + pending.size() + " pending", e);
+        scheduleFlush();
+    }
+
+    //For tests, read on the journal's thread
+    void setCommitListener(CommitListener listener) {
+        executor.execute(() -> commitListener = listener);
+    }
+
+    boolean isCommitting() throws Exception {
+        return executor.submit(() -> committing).get();
+    }
+
+    int getConsecutiveFailures() throws Exception {
+        return executor.submit(() -> consecutiveFailures).get();
+    }
+
+    //Replays everything after the committed offset. A line torn by a crash is cut off
+    //so the next append starts on a clean line
+    private void recover() {
+        long acked = readAck();
+        byte[] data;
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            data = new byte[(int) file.length()];
+            file.readFully(data);
+            int complete = data.length;
+            while (complete > 0 && data[complete - 1] != '\n') {
+                complete--;
+            }
+            if (complete < data.length) {
+                file.setLength(complete);
+            }
+            journalLength = complete;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not replay swipe journal", e);
+            return;
+        }
+        if (acked > journalLength) {
+            //The journal was truncated after this was written
+            acked = 0;
+        }
+
+        int lineStart = 0;
+        for (int i = 0; i < journalLength; i++) {
+            if (data[i] != '\n') {
+                continue;
+            }
+            long endOffset = i + 1;
+            String line = new String(data, lineStart, i - lineStart, StandardCharsets.UTF_8);
+            lineStart = i + 1;
+            if (endOffset <= acked) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length != 4) {
+                continue;
+            }
+            try {
+                pending.add(new Entry(fields[0], fields[1], "L".equals(fields[2]), Long.parseLong(fields[3]), endOffset));
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Skipping corrupt journal line " + line);
+            }
+        }
+        Log.d(TAG, "Recovered " + pending.size() + " unsent swipes");
+        scheduleFlush();
+    }
+
+    private void writeAck(long offset) {
+        File temp = new File(ackFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeLong(offset);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not record committed swipes", e);
+            return;
+        }
+        if (!temp.renameTo(ackFile)) {
+            Log.w(TAG, "Could not replace " + ackFile);
+        }
+    }
+
+    private long readAck() {
+        if (!ackFile.exists()) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(ackFile))) {
+            return in.readLong();
+        } catch (IOException e) {
+            Log.w(TAG, "Unreadable " + ackFile + ", resending the whole journal", e);
+            return 0;
+        }
+    }
+
+    //Nothing pending, start the journal over so it never grows past one unsent backlog.
+    //The ack goes first: dying in between resends swipes, which is harmless, rather than skipping new ones
+    private void truncate() {
+        if (ackFile.exists() && !ackFile.delete()) {
+            Log.w(TAG, "Could not delete " + ackFile);
+            writeAck(journalLength);
+            return;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(0);
+            journalLength = 0;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not truncate swipe journal", e);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.example.cineswipe;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//Learns what the user swipes right on and orders deck candidates by it, without any extra requests.
+//Features are genres, release decade, rating band and top-billed cast. Weights decay with a two week half-life
+public class SwipeRanker {
+    private static final String TAG = "SwipeRanker";
+    private static final String FILE_NAME = "swipe_ranker.bin";
+    private static final int FILE_VERSION = 1;
+
+    private static final double HALF_LIFE_MILLIS = 14 * 24 * 60 * 60 * 1000.0;
+    private static final double DECAY_RATE = Math.log(2) / HALF_LIFE_MILLIS;
+    //Raw weights are stored scaled up by exp(DECAY_RATE * age), rebased before that loses precision
+    private static final double MAX_LOG_SCALE = 30;
+    private static final double LIKE_DELTA = 1.0;
+    private static final double PASS_DELTA = -0.6;
+    private static final int MAX_CAST_FEATURES = 5;
+    //Small pull towards better rated titles, mostly a tie-break before any swipes are known
+    private static final double RATING_PRIOR = 0.02;
+    //No more than two cards with the same main genre in any five in a row
+    private static final int DIVERSITY_WINDOW = 5;
+    private static final int MAX_SAME_GENRE_IN_WINDOW = 2;
+    //How far down the ranked list to look for a card that keeps the deck diverse
+    private static final int DIVERSITY_LOOKAHEAD = 20;
+    private static final int SAVE_EVERY_SWIPES = 10;
+
+    private static final int FEATURE_GENRE = 1;
+    private static final int FEATURE_DECADE = 2;
+    private static final int FEATURE_RATING = 3;
+    private static final int FEATURE_CAST = 4;
+
+    private static SwipeRanker instance;
+
+    private final FeatureWeights rawWeights = new FeatureWeights();
+    //Loads and saves the weights file; not MovieDatabase's executor, that one is for the database
+    private final ExecutorService fileExecutor = Executors.newSingleThreadExecutor();
+    private final CachePolicy.Clock clock;
+    private final File file;
+    //Time at which stored raw weights equal their effective value
+    private long epoch;
+    private int swipesSinceSave;
+
+    SwipeRanker(File file, CachePolicy.Clock clock) {
+        this.file = file;
+        this.clock = clock;
+        this.epoch = clock.now();
+    }
+
+    public static synchronized SwipeRanker getInstance(Context context) {
+        if (instance == null) {
+            instance = new SwipeRanker(new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                    CachePolicy.Clock.SYSTEM);
+            SwipeRanker ranker = instance;
+            ranker.fileExecutor.execute(ranker::load);
+        }
+        return instance;
+    }
+
+    //O(features of one movie): decay is folded into the scale instead of touching every weight
+    public void onSwiped(Movie movie, boolean liked) {
+        if (movie == null) {
+            return;
+        }
+        boolean save;
+        synchronized (this) {
+            double scale = scale(clock.now());
+            double delta = (liked ? LIKE_DELTA : PASS_DELTA) * scale;
+            for (long feature : features(movie)) {
+                rawWeights.add(feature, delta);
+            }
+            save = ++swipesSinceSave >= SAVE_EVERY_SWIPES;
+            if (save) {
+                swipesSinceSave = 0;
+            }
+        }
+        if (save) {
+            FeatureWeights snapshot = snapshot();
+            fileExecutor.execute(() -> save(snapshot));
+        }
+    }
+
+    //Highest predicted like first, then spread so one genre can't run the deck.
+    //Runs on the main thread when a page lands, so it stays O(n * lookahead) over plain arrays
+    public synchronized List<Movie> rank(List<Movie> candidates) {
+        double decay = 1 / scale(clock.now());
+        int count = candidates.size();
+        int[] order = new int[count];
+        double[] scores = new double[count];
+        int[] genres = new int[count];
+        for (int i = 0; i < count; i++) {
+            Movie movie = candidates.get(i);
+            int[] genreIds = movie.getGenreIds();
+            order[i] = i;
+            genres[i] = genreIds.length > 0 ? genreIds[0] : 0;
+            scores[i] = score(movie, genreIds, decay);
+        }
+        sortByScore(order, scores);
+
+        List<Movie> result = new ArrayList<>(count);
+        for (int index : diversify(order, genres)) {
+            result.add(candidates.get(index));
+        }
+        return result;
+    }
+
+    public synchronized double score(Movie movie) {
+        return score(movie, movie.getGenreIds(), 1 / scale(clock.now()));
+    }
+
+    private double score(Movie movie, int[] genreIds, double decay) {
+        long[] features = features(movie, genreIds);
+        double sum = 0;
+        for (long feature : features) {
+            sum += rawWeights.get(feature);
+        }
+        double affinity = features.length == 0 ? 0 : sum * decay / Math.sqrt(features.length);
+        return affinity + RATING_PRIOR * movie.getVoteAverage();
+    }
+
+    //Bottom-up merge sort of indexes by descending score, over int[] so no index is boxed.
+    //Stable, equal scores keep their incoming order
+    private static void sortByScore(int[] order, double[] scores) {
+        int count = order.length;
+        int[] from = order;
+        int[] to = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int left = 0; left < count; left += 2 * width) {
+                int middle = Math.min(left + width, count);
+                int right = Math.min(left + 2 * width, count);
+                int i = left;
+                int j = middle;
+                for (int k = left; k < right; k++) {
+                    //Only a strictly higher score on the right goes first
+                    if (j < right && (i >= middle || Double.compare(scores[from[j]], scores[from[i]]) > 0)) {
+                        to[k] = from[j++];
+                    } else {
+                        to[k] = from[i++];
+                    }
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != order) {
+            System.arraycopy(from, 0, order, 0, count);
+        }
+    }
+
+    //Walks the ranked order, taking the first of the next few candidates whose main genre still fits
+    //the window; if none does the best one goes anyway. Unplaced candidates form a linked list by index
+    private static int[] diversify(int[] ranked, int[] genres) {
+        int count = ranked.length;
+        int[] next = new int[count + 1];
+        int head = count;
+        for (int i = 0; i < count; i++) {
+            next[i == 0 ? head : ranked[i - 1]] = ranked[i];
+        }
+        if (count > 0) {
+            next[ranked[count - 1]] = -1;
+        } else {
+            next[head] = -1;
+        }
+
+        int[] placed = new int[count];
+        for (int p = 0; p < count; p++) {
+            int previous = head;
+            int chosenPrevious = head;
+            int current = next[head];
+            for (int looked = 0; current != -1 && looked < DIVERSITY_LOOKAHEAD; looked++) {
+                if (fitsWindow(placed, p, genres, genres[current])) {
+                    chosenPrevious = previous;
+                    break;
+                }
+                previous = current;
+                current = next[current];
+            }
+            int chosen = next[chosenPrevious];
+            next[chosenPrevious] = next[chosen];
+            placed[p] = chosen;
+        }
+        return placed;
+    }
+
+    private static boolean fitsWindow(int[] placed, int placedCount, int[] genres, int genre) {
+        if (genre == 0) {
+            return true;
+        }
+        int same = 0;
+        for (int i = Math.max(0, placedCount - DIVERSITY_WINDOW + 1); i < placedCount; i++) {
+            if (genres[placed[i]] == genre) {
+                same++;
+            }
+        }
+        return same < MAX_SAME_GENRE_IN_WINDOW;
+    }
+
+    private static long[] features(Movie movie) {
+        return features(movie, movie.getGenreIds());
+    }
+
+    //Feature keys are the kind in the high half and the value in the low half, no strings per candidate
+    private static long[] features(Movie movie, int[] genreIds) {
+        List<CastMember> cast = movie.getCastList();
+        int castCount = cast != null ? Math.min(cast.size(), MAX_CAST_FEATURES) : 0;
+        long[] features = new long[genreIds.length + 2 + castCount];
+        int count = 0;
+        for (int genreId : genreIds) {
+            features[count++] = key(FEATURE_GENRE, genreId);
+        }
+        int year = releaseYear(movie.getReleaseDate());
+        if (year > 0) {
+            features[count++] = key(FEATURE_DECADE, year / 10);
+        }
+        if (movie.getVoteAverage() > 0) {
+            features[count++] = key(FEATURE_RATING, (int) movie.getVoteAverage());
+        }
+        for (int i = 0; i < castCount; i++) {
+            if (cast.get(i).getId() != 0) {
+                features[count++] = key(FEATURE_CAST, cast.get(i).getId());
+            }
+        }
+        return count == features.length ? features : Arrays.copyOf(features, count);
+    }
+
+    private static long key(int kind, int value) {
+        return ((long) kind << 32) | (value & 0xffffffffL);
+    }
+
+    //"1994-09-23" -> 1994, without allocating a substring
+    private static int releaseYear(String releaseDate) {
+        if (releaseDate == null || releaseDate.length() < 4) {
+            return 0;
+        }
+        int year = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = releaseDate.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return 0;
+            }
+            year = year * 10 + digit;
+        }
+        return year;
+    }
+
+    //exp(DECAY_RATE * (now - epoch)), rebasing all weights in the rare case it grows too large
+    private double scale(long now) {
+        double logScale = DECAY_RATE * (now - epoch);
+        if (logScale > MAX_LOG_SCALE) {
+            rawWeights.scale(Math.exp(-logScale));
+            epoch = now;
+            logScale = 0;
+        }
+        return Math.exp(logScale);
+    }
+
+    //Effective weights as of now
+    private synchronized FeatureWeights snapshot() {
+        double decay = 1 / scale(clock.now());
+        FeatureWeights effective = rawWeights.copy();
+        effective.scale(decay);
+        return effective;
+    }
+
+    private void save(FeatureWeights effective) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeInt(FILE_VERSION);
+            out.writeLong(clock.now());
+            out.writeInt(effective.size);
+            for (int i = 0; i < effective.keys.length; i++) {
+                if (effective.keys[i] != 0) {
+                    out.writeLong(effective.keys[i]);
+                    out.writeDouble(effective.values[i]);
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Saving swipe preferences failed", e);
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Could not replace " + file);
+        }
+    }
+
+    //Merged on top of swipes made before the file was read, nothing is lost if a swipe comes first
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != FILE_VERSION) {
+                return;
+            }
+            long savedAt = in.readLong();
+            int count = in.readInt();
+            synchronized (this) {
+                long now = clock.now();
+                double scale = scale(now);
+                double age = Math.max(0, now - savedAt) * DECAY_RATE;
+                for (int i = 0; i < count; i++) {
+                    long feature = in.readLong();
+                    rawWeights.add(feature, in.readDouble() * Math.exp(-age) * scale);
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Reading swipe preferences failed", e);
+        }
+    }
+
+    //Feature key -> raw weight in open-addressed parallel arrays, so ranking looks weights up without boxing.
+    //Keys always have a kind in the high half and are never 0, which marks an empty slot
+    private static final class FeatureWeights {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private double[] values = new double[INITIAL_CAPACITY];
+        private int size;
+
+        double get(long key) {
+            int slot = slot(keys, key);
+            return keys[slot] == key ? values[slot] : 0;
+        }
+
+        void add(long key, double delta) {
+            int slot = slot(keys, key);
+            if (keys[slot] != key) {
+                //Kept at most half full so probe runs stay short
+                if (size + 1 > keys.length / 2) {
+                    grow();
+                    slot = slot(keys, key);
+                }
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] += delta;
+        }
+
+        //Empty slots hold 0 and stay 0
+        void scale(double factor) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] *= factor;
+            }
+        }
+
+        FeatureWeights copy() {
+            FeatureWeights copy = new FeatureWeights();
+            copy.keys = keys.clone();
+            copy.values = values.clone();
+            copy.size = size;
+            return copy;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            double[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new double[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        //The slot holding key, or the empty slot it would go in
+        private static int slot(long[] keys, long key) {
+            int mask = keys.length - 1;
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (mixed ^ (mixed >>> 32)) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
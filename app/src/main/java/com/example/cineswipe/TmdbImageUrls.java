@@ -0,0 +1,110 @@
+package com.example.cineswipe;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+//Builds TMDB image urls with the smallest size bucket that still covers the target view
+public class TmdbImageUrls {
+    private static final String IMAGE_BASE_URL = "https://image.tmdb.org/t/p/";
+    private static final String ORIGINAL = "original";
+    private static final int[] POSTER_WIDTHS = {92, 154, 185, 342, 500, 780};
+    private static final int[] BACKDROP_WIDTHS = {300, 780, 1280};
+    private static final float POSTER_ASPECT = 2f / 3f;
+    private static final float BACKDROP_ASPECT = 16f / 9f;
+    //Size used when there is no view to measure, matches the old hard-coded w500
+    public static final int DEFAULT_POSTER_WIDTH = 500;
+    public static final int DEFAULT_BACKDROP_WIDTH = 780;
+    private static final int MAX_PARENT_DEPTH = 3;
+    private static final long METERED_CHECK_INTERVAL_MS = 5000;
+
+    private static volatile boolean metered = false;
+    private static volatile long meteredCheckedAt = -METERED_CHECK_INTERVAL_MS;
+
+    private TmdbImageUrls() {
+    }
+
+    public static String poster(String path, int targetWidthPx, boolean metered) {
+        return resolve(path, POSTER_WIDTHS, targetWidthPx, metered);
+    }
+
+    public static String backdrop(String path, int targetWidthPx, boolean metered) {
+        return resolve(path, BACKDROP_WIDTHS, targetWidthPx, metered);
+    }
+
+    public static String posterFor(View view, String path) {
+        return poster(path, targetWidth(view, POSTER_ASPECT), isMetered(view.getContext()));
+    }
+
+    public static String backdropFor(View view, String path) {
+        return backdrop(path, targetWidth(view, BACKDROP_ASPECT), isMetered(view.getContext()));
+    }
+
+    static String resolve(String path, int[] widths, int targetWidthPx, boolean metered) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        int bucket = widths.length; // "original"
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] >= targetWidthPx) {
+                bucket = i;
+                break;
+            }
+        }
+        //One bucket down on metered networks, slightly soft images beat paying for data
+        if (metered && bucket > 0) {
+            bucket--;
+        }
+        String size = bucket < widths.length ? "w" + widths[bucket] : ORIGINAL;
+        return IMAGE_BASE_URL + size + path;
+    }
+
+    //Pixel width the image must have to fill the view under centerCrop
+    static int targetWidth(View view, float imageAspect) {
+        int width = resolveDimension(view, true);
+        int height = resolveDimension(view, false);
+        if (width <= 0) {
+            width = view.getResources().getDisplayMetrics().widthPixels;
+        }
+        if (height > 0) {
+            width = Math.max(width, Math.round(height * imageAspect));
+        }
+        return width;
+    }
+
+    //Measured size if laid out, otherwise the first fixed layout size up the tree
+    private static int resolveDimension(View view, boolean horizontal) {
+        View current = view;
+        for (int depth = 0; current != null && depth <= MAX_PARENT_DEPTH; depth++) {
+            int measured = horizontal ? current.getWidth() : current.getHeight();
+            if (measured > 0) {
+                return measured;
+            }
+            ViewGroup.LayoutParams params = current.getLayoutParams();
+            if (params != null) {
+                int size = horizontal ? params.width : params.height;
+                if (size > 0) {
+                    return size;
+                }
+            }
+            ViewParent parent = current.getParent();
+            current = parent instanceof View ? (View) parent : null;
+        }
+        return 0;
+    }
+
+    //Cached for a few seconds, this is hit on every bind
+    static boolean isMetered(Context context) {
+        long now = SystemClock.elapsedRealtime();
+        if (now - meteredCheckedAt > METERED_CHECK_INTERVAL_MS) {
+            ConnectivityManager connectivityManager =
+                    (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            metered = connectivityManager != null && connectivityManager.isActiveNetworkMetered();
+            meteredCheckedAt = now;
+        }
+        return metered;
+    }
+}
@@ -0,0 +1,492 @@
+package com.example.cineswipe;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+//Parser for the paged movie lists (discover, popular, trending...), the response every deck and home row
+//page goes through. It works on the UTF-8 body: field names are compared in place instead of becoming
+//Strings, values the app never reads are stepped over, and only kept strings are decoded.
+//Every other model still goes through TmdbTypeAdapters
+public final class TmdbPageParser {
+    private static final byte[] PAGE = ascii("page");
+    private static final byte[] TOTAL_PAGES = ascii("total_pages");
+    private static final byte[] RESULTS = ascii("results");
+
+    private static final byte[] ID = ascii("id");
+    private static final byte[] TITLE = ascii("title");
+    private static final byte[] RELEASE_DATE = ascii("release_date");
+    private static final byte[] POSTER_PATH = ascii("poster_path");
+    private static final byte[] BACKDROP_PATH = ascii("backdrop_path");
+    private static final byte[] OVERVIEW = ascii("overview");
+    private static final byte[] VOTE_AVERAGE = ascii("vote_average");
+    private static final byte[] GENRE_IDS = ascii("genre_ids");
+    private static final byte[] GENRES = ascii("genres");
+    private static final byte[] RUNTIME = ascii("runtime");
+    private static final byte[] NAME = ascii("name");
+
+    //Exact powers of ten; a mantissa below 2^53 divided by one of these rounds the same as parseDouble
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final byte[] json;
+    private int pos;
+    //Set by name(), the raw bytes of the last field name
+    private int nameStart;
+    private int nameEnd;
+
+    private TmdbPageParser(byte[] json) {
+        this.json = json;
+    }
+
+    public static MovieResponse parse(byte[] json) throws IOException {
+        TmdbPageParser parser = new TmdbPageParser(json);
+        MovieResponse response = parser.readResponse();
+        parser.skipWhitespace();
+        if (parser.pos != json.length) {
+            throw parser.error("Trailing data");
+        }
+        return response;
+    }
+
+    //Put ahead of GsonConverterFactory, it only claims MovieResponse
+    public static class ConverterFactory extends Converter.Factory {
+        @Override
+        public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+            if (type != MovieResponse.class) {
+                return null;
+            }
+            return (Converter<ResponseBody, MovieResponse>) body -> {
+                try {
+                    return parse(body.bytes());
+                } finally {
+                    body.close();
+                }
+            };
+        }
+    }
+
+    private MovieResponse readResponse() throws IOException {
+        MovieResponse response = new MovieResponse();
+        beginObject();
+        while (hasNextField()) {
+            name();
+            if (nameIs(PAGE)) {
+                response.setPage(readInt());
+            } else if (nameIs(TOTAL_PAGES)) {
+                response.setTotalPages(readInt());
+            } else if (nameIs(RESULTS)) {
+                response.setResults(readMovies());
+            } else {
+                skipValue();
+            }
+        }
+        return response;
+    }
+
+    private List<Movie> readMovies() throws IOException {
+        if (readNull()) {
+            return null;
+        }
+        List<Movie> movies = new ArrayList<>();
+        beginArray();
+        while (hasNextElement()) {
+            if (readNull()) {
+                continue;
+            }
+            movies.add(readMovie());
+        }
+        return movies;
+    }
+
+    private Movie readMovie() throws IOException {
+        String id = null;
+        String title = null;
+        String releaseDate = null;
+        String posterPath = null;
+        String backdropPath = null;
+        String overview = null;
+        double voteAverage = 0;
+        List<Genre> genres = null;
+        int runtime = 0;
+        int[] genreIds = null;
+
+        beginObject();
+        while (hasNextField()) {
+            name();
+            //Checked by length first, most names fail on that alone
+            if (nameIs(ID)) {
+                id = readStringOrNumber();
+            } else if (nameIs(TITLE)) {
+                title = readString();
+            } else if (nameIs(RELEASE_DATE)) {
+                releaseDate = readString();
+            } else if (nameIs(POSTER_PATH)) {
+                posterPath = readString();
+            } else if (nameIs(BACKDROP_PATH)) {
+                backdropPath = readString();
+            } else if (nameIs(OVERVIEW)) {
+                overview = readString();
+            } else if (nameIs(VOTE_AVERAGE)) {
+                voteAverage = readDouble();
+            } else if (nameIs(GENRE_IDS)) {
+                genreIds = readIntArray();
+            } else if (nameIs(GENRES)) {
+                genres = readGenres();
+            } else if (nameIs(RUNTIME)) {
+                runtime = readInt();
+            } else {
+                skipValue();
+            }
+        }
+        Movie movie = new Movie(id, title, releaseDate, posterPath, backdropPath, overview, voteAverage,
+                genres, runtime, null);
+        movie.setGenreIds(genreIds);
+        return movie;
+    }
+
+    private List<Genre> readGenres() throws IOException {
+        if (readNull()) {
+            return null;
+        }
+        List<Genre> genres = new ArrayList<>();
+        beginArray();
+        while (hasNextElement()) {
+            int genreId = 0;
+            String name = null;
+            beginObject();
+            while (hasNextField()) {
+                name();
+                if (nameIs(ID)) {
+                    genreId = readInt();
+                } else if (nameIs(NAME)) {
+                    name = readString();
+                } else {
+                    skipValue();
+                }
+            }
+            genres.add(new Genre(genreId, name));
+        }
+        return genres;
+    }
+
+    private int[] readIntArray() throws IOException {
+        if (readNull()) {
+            return null;
+        }
+        int[] values = new int[4];
+        int size = 0;
+        beginArray();
+        while (hasNextElement()) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = readInt();
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    //Structure. hasNext* consume the separator before an element and the closing bracket after the last
+
+    private void beginObject() throws IOException {
+        expect('{');
+        first = true;
+    }
+
+    private void beginArray() throws IOException {
+        expect('[');
+        first = true;
+    }
+
+    //Whether the element about to be read is the first of its object or array
+    private boolean first;
+
+    private boolean hasNextField() throws IOException {
+        return hasNext('}');
+    }
+
+    private boolean hasNextElement() throws IOException {
+        return hasNext(']');
+    }
+
+    private boolean hasNext(char close) throws IOException {
+        skipWhitespace();
+        if (pos < json.length && json[pos] == close) {
+            pos++;
+            first = false;
+            return false;
+        }
+        if (!first) {
+            expect(',');
+        }
+        first = false;
+        return true;
+    }
+
+    private void name() throws IOException {
+        skipWhitespace();
+        if (pos >= json.length || json[pos] != '"') {
+            throw error("Expected a field name");
+        }
+        nameStart = pos + 1;
+        nameEnd = endOfString(nameStart);
+        pos = nameEnd + 1;
+        expect(':');
+    }
+
+    //Names with escapes never match, TMDB sends none in the fields read here
+    private boolean nameIs(byte[] expected) {
+        int length = nameEnd - nameStart;
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (json[nameStart + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Values
+
+    private boolean readNull() throws IOException {
+        skipWhitespace();
+        if (pos + 4 <= json.length && json[pos] == 'n' && json[pos + 1] == 'u' && json[pos + 2] == 'l'
+                && json[pos + 3] == 'l') {
+            pos += 4;
+            return true;
+        }
+        return false;
+    }
+
+    private String readString() throws IOException {
+        if (readNull()) {
+            return null;
+        }
+        if (pos >= json.length || json[pos] != '"') {
+            throw error("Expected a string");
+        }
+        int start = pos + 1;
+        int end = endOfString(start);
+        pos = end + 1;
+        return decode(start, end);
+    }
+
+    //TMDB ids arrive as numbers, kept as their text like JsonReader.nextString() does
+    private String readStringOrNumber() throws IOException {
+        skipWhitespace();
+        if (pos < json.length && json[pos] != '"' && json[pos] != 'n') {
+            int start = pos;
+            skipLiteral();
+            return new String(json, start, pos - start, StandardCharsets.US_ASCII);
+        }
+        return readString();
+    }
+
+    private double readDouble() throws IOException {
+        if (readNull()) {
+            return 0;
+        }
+        if (pos >= json.length) {
+            throw error("Expected a number");
+        }
+        if (json[pos] == '"') {
+            return parseDouble(readString());
+        }
+        int start = pos;
+        skipLiteral();
+        //Fast path for plain decimals such as 7.123, anything with an exponent or too many digits is parsed as text
+        boolean negative = json[start] == '-';
+        long mantissa = 0;
+        int fractionDigits = -1;
+        for (int i = negative ? start + 1 : start; i < pos; i++) {
+            byte c = json[i];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9' && mantissa < MAX_EXACT_MANTISSA / 10) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else {
+                return parseDouble(new String(json, start, pos - start, StandardCharsets.US_ASCII));
+            }
+        }
+        if (pos == (negative ? start + 1 : start) || fractionDigits == 0
+                || fractionDigits >= POWERS_OF_TEN.length) {
+            return parseDouble(new String(json, start, pos - start, StandardCharsets.US_ASCII));
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private int readInt() throws IOException {
+        if (readNull()) {
+            return 0;
+        }
+        double value = readDouble();
+        int result = (int) value;
+        if (result != value) {
+            throw error("Expected an int but was " + value);
+        }
+        return result;
+    }
+
+    private double parseDouble(String text) throws IOException {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw error("Malformed number " + text);
+        }
+    }
+
+    private void skipValue() throws IOException {
+        skipWhitespace();
+        if (pos >= json.length) {
+            throw error("Expected a value");
+        }
+        byte c = json[pos];
+        if (c == '"') {
+            pos = endOfString(pos + 1) + 1;
+        } else if (c == '{' || c == '[') {
+            //Strings are stepped over whole, brackets inside them don't count
+            int depth = 0;
+            do {
+                c = json[pos];
+                if (c == '"') {
+                    pos = endOfString(pos + 1);
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                pos++;
+                if (depth > 0 && pos >= json.length) {
+                    throw error("Unterminated value");
+                }
+            } while (depth > 0);
+        } else {
+            skipLiteral();
+        }
+    }
+
+    //Numbers, true, false
+    private void skipLiteral() throws IOException {
+        int start = pos;
+        while (pos < json.length) {
+            byte c = json[pos];
+            if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                break;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw error("Expected a value");
+        }
+    }
+
+    //Index of the closing quote of the string starting at start
+    private int endOfString(int start) throws IOException {
+        for (int i = start; i < json.length; i++) {
+            if (json[i] == '"') {
+                return i;
+            }
+            if (json[i] == '\\') {
+                i++;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private String decode(int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            if (json[i] == '\\') {
+                return unescape(start, end);
+            }
+        }
+        return new String(json, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private String unescape(int start, int end) throws IOException {
+        StringBuilder value = new StringBuilder(end - start);
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            if (json[i] != '\\') {
+                continue;
+            }
+            value.append(new String(json, runStart, i - runStart, StandardCharsets.UTF_8));
+            byte escaped = json[++i];
+            switch (escaped) {
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    if (i + 4 >= end) {
+                        throw error("Truncated \\u escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(new String(json, i + 1, 4, StandardCharsets.US_ASCII), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Malformed \\u escape");
+                    }
+                    i += 4;
+                    break;
+                default:
+                    //\" \\ \/
+                    value.append((char) escaped);
+                    break;
+            }
+            runStart = i + 1;
+        }
+        value.append(new String(json, runStart, end - runStart, StandardCharsets.UTF_8));
+        return value.toString();
+    }
+
+    private void expect(char c) throws IOException {
+        skipWhitespace();
+        if (pos >= json.length || json[pos] != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length) {
+            byte c = json[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " at byte " + pos);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
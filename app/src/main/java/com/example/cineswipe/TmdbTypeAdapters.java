@@ -0,0 +1,499 @@
+package com.example.cineswipe;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Streaming, reflection-free Gson adapters for the TMDB models.
+//Fields the app never reads (adult, popularity, original_language, ...) are skipped with skipValue()
+public class TmdbTypeAdapters implements TypeAdapterFactory {
+
+    public static final TypeAdapter<Movie> MOVIE = new MovieAdapter().nullSafe();
+    public static final TypeAdapter<List<Movie>> MOVIE_LIST = new MovieListAdapter().nullSafe();
+    public static final TypeAdapter<MovieResponse> MOVIE_RESPONSE = new MovieResponseAdapter().nullSafe();
+    public static final TypeAdapter<GenreResponse> GENRE_RESPONSE = new GenreResponseAdapter().nullSafe();
+    public static final TypeAdapter<CreditsResponse> CREDITS_RESPONSE = new CreditsResponseAdapter().nullSafe();
+
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(new TmdbTypeAdapters())
+            .create();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == Movie.class) {
+            return (TypeAdapter<T>) MOVIE;
+        } else if (rawType == MovieResponse.class) {
+            return (TypeAdapter<T>) MOVIE_RESPONSE;
+        } else if (rawType == GenreResponse.class) {
+            return (TypeAdapter<T>) GENRE_RESPONSE;
+        } else if (rawType == CreditsResponse.class) {
+            return (TypeAdapter<T>) CREDITS_RESPONSE;
+        }
+        return null;
+    }
+
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        //TMDB ids arrive as numbers, nextString() reads those too
+        return in.nextString();
+    }
+
+    private static double nextDouble(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextDouble();
+    }
+
+    private static int nextInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+
+    private static boolean skipIfNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    private static int[] readIntArray(JsonReader in) throws IOException {
+        if (skipIfNull(in)) {
+            return null;
+        }
+        int[] values = new int[4];
+        int size = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nextInt(in);
+        }
+        in.endArray();
+        return Arrays.copyOf(values, size);
+    }
+
+    static List<Movie> readMovies(JsonReader in) throws IOException {
+        if (skipIfNull(in)) {
+            return null;
+        }
+        List<Movie> movies = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            Movie movie = MOVIE.read(in);
+            if (movie != null) {
+                movies.add(movie);
+            }
+        }
+        in.endArray();
+        return movies;
+    }
+
+    static void writeMovies(JsonWriter out, List<Movie> movies) throws IOException {
+        if (movies == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (Movie movie : movies) {
+            MOVIE.write(out, movie);
+        }
+        out.endArray();
+    }
+
+    private static class MovieAdapter extends TypeAdapter<Movie> {
+        @Override
+        public Movie read(JsonReader in) throws IOException {
+            String id = null;
+            String title = null;
+            String releaseDate = null;
+            String posterPath = null;
+            String backdropPath = null;
+            String overview = null;
+            double voteAverage = 0;
+            List<Genre> genres = null;
+            int runtime = 0;
+            List<CastMember> cast = null;
+            int[] genreIds = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = nextString(in);
+                        break;
+                    case "title":
+                        title = nextString(in);
+                        break;
+                    case "release_date":
+                        releaseDate = nextString(in);
+                        break;
+                    case "poster_path":
+                        posterPath = nextString(in);
+                        break;
+                    case "backdrop_path":
+                        backdropPath = nextString(in);
+                        break;
+                    case "overview":
+                        overview = nextString(in);
+                        break;
+                    case "vote_average":
+                        voteAverage = nextDouble(in);
+                        break;
+                    case "genres":
+                        genres = readGenres(in);
+                        break;
+                    case "genre_ids":
+                        genreIds = readIntArray(in);
+                        break;
+                    case "runtime":
+                        runtime = nextInt(in);
+                        break;
+                    case "cast":
+                        cast = readCast(in);
+                        break;
+                    case "credits":
+                        List<CastMember> credits = readCredits(in);
+                        if (credits != null) {
+                            cast = credits;
+                        }
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+
+            Movie movie = new Movie(id, title, releaseDate, posterPath, backdropPath, overview,
+                    voteAverage, genres, runtime, cast);
+            movie.setGenreIds(genreIds);
+            return movie;
+        }
+
+        @Override
+        public void write(JsonWriter out, Movie movie) throws IOException {
+            out.beginObject();
+            out.name("id").value(movie.getId());
+            out.name("title").value(movie.getTitle());
+            out.name("release_date").value(movie.getReleaseDate());
+            out.name("poster_path").value(movie.getPosterPath());
+            out.name("backdrop_path").value(movie.getBackdropPath());
+            out.name("overview").value(movie.getOverview());
+            out.name("vote_average").value(movie.getVoteAverage());
+            if (movie.getGenreList() != null) {
+                out.name("genres").beginArray();
+                for (Genre genre : movie.getGenreList()) {
+                    out.beginObject();
+                    out.name("id").value(genre.getId());
+                    out.name("name").value(genre.getName());
+                    out.endObject();
+                }
+                out.endArray();
+            }
+            if (movie.getRawGenreIds() != null) {
+                out.name("genre_ids").beginArray();
+                for (int genreId : movie.getRawGenreIds()) {
+                    out.value(genreId);
+                }
+                out.endArray();
+            }
+            out.name("runtime").value(movie.getRuntimeMinutes());
+            if (movie.getCastList() != null) {
+                out.name("cast").beginArray();
+                for (CastMember member : movie.getCastList()) {
+                    out.beginObject();
+                    if (member.getId() != 0) {
+                        out.name("id").value(member.getId());
+                    }
+                    out.name("name").value(member.getName());
+                    if (member.getCharacter() != null) {
+                        out.name("character").value(member.getCharacter());
+                    }
+                    out.endObject();
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        private List<Genre> readGenres(JsonReader in) throws IOException {
+            if (skipIfNull(in)) {
+                return null;
+            }
+            List<Genre> genres = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                int genreId = 0;
+                String name = null;
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "id":
+                            genreId = nextInt(in);
+                            break;
+                        case "name":
+                            name = nextString(in);
+                            break;
+                        default:
+                            in.skipValue();
+                            break;
+                    }
+                }
+                in.endObject();
+                genres.add(new Genre(genreId, name));
+            }
+            in.endArray();
+            return genres;
+        }
+
+        //append_to_response=credits nests the cast under "credits"; crew is skipped
+        private List<CastMember> readCredits(JsonReader in) throws IOException {
+            if (skipIfNull(in)) {
+                return null;
+            }
+            List<CastMember> cast = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("cast".equals(in.nextName())) {
+                    cast = readCast(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return cast;
+        }
+
+        private List<CastMember> readCast(JsonReader in) throws IOException {
+            if (skipIfNull(in)) {
+                return null;
+            }
+            List<CastMember> cast = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                int castId = 0;
+                String name = null;
+                String character = null;
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "id":
+                            castId = nextInt(in);
+                            break;
+                        case "name":
+                            name = nextString(in);
+                            break;
+                        case "character":
+                            character = nextString(in);
+                            break;
+                        default:
+                            in.skipValue();
+                            break;
+                    }
+                }
+                in.endObject();
+                cast.add(new CastMember(castId, name, character));
+            }
+            in.endArray();
+            return cast;
+        }
+    }
+
+    private static class MovieListAdapter extends TypeAdapter<List<Movie>> {
+        @Override
+        public List<Movie> read(JsonReader in) throws IOException {
+            return readMovies(in);
+        }
+
+        @Override
+        public void write(JsonWriter out, List<Movie> movies) throws IOException {
+            writeMovies(out, movies);
+        }
+    }
+
+    private static class MovieResponseAdapter extends TypeAdapter<MovieResponse> {
+        @Override
+        public MovieResponse read(JsonReader in) throws IOException {
+            MovieResponse response = new MovieResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "page":
+                        response.setPage(nextInt(in));
+                        break;
+                    case "total_pages":
+                        response.setTotalPages(nextInt(in));
+                        break;
+                    case "results":
+                        response.setResults(readMovies(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return response;
+        }
+
+        @Override
+        public void write(JsonWriter out, MovieResponse response) throws IOException {
+            out.beginObject();
+            out.name("page").value(response.getPage());
+            out.name("total_pages").value(response.getTotalPages());
+            out.name("results");
+            writeMovies(out, response.getMovies());
+            out.endObject();
+        }
+    }
+
+    private static class GenreResponseAdapter extends TypeAdapter<GenreResponse> {
+        @Override
+        public GenreResponse read(JsonReader in) throws IOException {
+            List<GenreResponse.Genre> genres = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("genres".equals(in.nextName()) && !skipIfNull(in)) {
+                    genres = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        int id = 0;
+                        String name = null;
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            switch (in.nextName()) {
+                                case "id":
+                                    id = nextInt(in);
+                                    break;
+                                case "name":
+                                    name = nextString(in);
+                                    break;
+                                default:
+                                    in.skipValue();
+                                    break;
+                            }
+                        }
+                        in.endObject();
+                        genres.add(new GenreResponse.Genre(id, name));
+                    }
+                    in.endArray();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new GenreResponse(genres);
+        }
+
+        @Override
+        public void write(JsonWriter out, GenreResponse response) throws IOException {
+            out.beginObject();
+            if (response.getGenres() != null) {
+                out.name("genres").beginArray();
+                for (GenreResponse.Genre genre : response.getGenres()) {
+                    out.beginObject();
+                    out.name("id").value(genre.getId());
+                    out.name("name").value(genre.getName());
+                    out.endObject();
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+    }
+
+    private static class CreditsResponseAdapter extends TypeAdapter<CreditsResponse> {
+        @Override
+        public CreditsResponse read(JsonReader in) throws IOException {
+            List<CreditsResponse.Cast> cast = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("cast".equals(in.nextName()) && !skipIfNull(in)) {
+                    cast = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        cast.add(readCast(in));
+                    }
+                    in.endArray();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new CreditsResponse(cast);
+        }
+
+        private CreditsResponse.Cast readCast(JsonReader in) throws IOException {
+            int id = 0;
+            String name = null;
+            String character = null;
+            String profilePath = null;
+            int order = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = nextInt(in);
+                        break;
+                    case "name":
+                        name = nextString(in);
+                        break;
+                    case "character":
+                        character = nextString(in);
+                        break;
+                    case "profile_path":
+                        profilePath = nextString(in);
+                        break;
+                    case "order":
+                        order = nextInt(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new CreditsResponse.Cast(id, name, character, profilePath, order);
+        }
+
+        @Override
+        public void write(JsonWriter out, CreditsResponse response) throws IOException {
+            out.beginObject();
+            if (response.getCast() != null) {
+                out.name("cast").beginArray();
+                for (CreditsResponse.Cast member : response.getCast()) {
+                    out.beginObject();
+                    out.name("id").value(member.getId());
+                    out.name("name").value(member.getName());
+                    out.name("character").value(member.getCharacter());
+                    out.name("profile_path").value(member.getProfilePath());
+                    out.name("order").value(member.getOrder());
+                    out.endObject();
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+    }
+}
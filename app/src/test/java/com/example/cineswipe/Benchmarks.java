@@ -0,0 +1,57 @@
+package com.example.cineswipe;
+
+import java.lang.management.ManagementFactory;
+
+//Warmed-up time and allocation per operation for the JVM benchmarks in this folder.
+//Absolute numbers depend on the machine, the benchmarks only compare two ways of doing the same work
+final class Benchmarks {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    static final class Result {
+        final double nanosPerOp;
+        final double bytesPerOp;
+
+        Result(double nanosPerOp, double bytesPerOp) {
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f us/op, %.0f bytes/op", nanosPerOp / 1000, bytesPerOp);
+        }
+    }
+
+    private Benchmarks() {
+    }
+
+    //Best of ROUNDS for time, allocation is the same every round once warmed up
+    static Result measure(int iterations, Runnable op) {
+        for (int i = 0; i < WARMUP_ROUNDS * iterations; i++) {
+            op.run();
+        }
+        double bestNanos = Double.MAX_VALUE;
+        double bytes = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                op.run();
+            }
+            bestNanos = Math.min(bestNanos, (double) (System.nanoTime() - start) / iterations);
+            bytes = (double) (allocatedBytes() - allocatedBefore) / iterations;
+        }
+        return new Result(bestNanos, bytes);
+    }
+
+    static void report(String name, Result result) {
+        System.out.println(name + ": " + result);
+    }
+
+    //HotSpot's per-thread allocation counter, what a Gradle unit test runs on
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class CachePolicyTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long DAY = 24 * HOUR;
+
+    private long now = 100 * DAY;
+    private final CachePolicy policy = new CachePolicy(() -> now);
+
+    @Test
+    public void neverStoredIsMissing() {
+        assertEquals(CachePolicy.State.MISSING, policy.categoryState("popular", -1, 0));
+    }
+
+    @Test
+    public void categoryMovesFromFreshToStaleToExpired() {
+        //popular: 6h soft, 3 days hard
+        long storedAt = now;
+        assertEquals(CachePolicy.State.FRESH, policy.categoryState("popular", storedAt, 0));
+
+        now = storedAt + 6 * HOUR + 1;
+        assertEquals(CachePolicy.State.STALE, policy.categoryState("popular", storedAt, 0));
+
+        now = storedAt + 3 * DAY + 1;
+        assertEquals(CachePolicy.State.EXPIRED, policy.categoryState("popular", storedAt, 0));
+    }
+
+    @Test
+    public void learnedSoftTtlReplacesTheBaseOne() {
+        long storedAt = now;
+        now = storedAt + 2 * HOUR;
+
+        assertEquals(CachePolicy.State.FRESH, policy.categoryState("popular", storedAt, 0));
+        assertEquals(CachePolicy.State.STALE, policy.categoryState("popular", storedAt, HOUR));
+    }
+
+    @Test
+    public void clockGoingBackwardsIsStale() {
+        long storedAt = now;
+        now = storedAt - HOUR;
+
+        assertEquals(CachePolicy.State.STALE, policy.categoryState("popular", storedAt, 0));
+    }
+
+    @Test
+    public void unknownCategoriesAndDetailsUseTheirOwnRules() {
+        long storedAt = now;
+        now = storedAt + 2 * HOUR;
+        assertEquals(CachePolicy.State.STALE, policy.categoryState("genre_28", storedAt, 0));
+        assertEquals(CachePolicy.State.FRESH, policy.detailsState(storedAt));
+
+        now = storedAt + 8 * DAY;
+        assertEquals(CachePolicy.State.STALE, policy.detailsState(storedAt));
+
+        now = storedAt + 31 * DAY;
+        assertEquals(CachePolicy.State.EXPIRED, policy.detailsState(storedAt));
+    }
+
+    @Test
+    public void softTtlGrowsWhileUnchangedAndShrinksOnChange() {
+        assertEquals(9 * HOUR, policy.nextSoftTtl("popular", 0, false));
+        assertEquals(3 * HOUR, policy.nextSoftTtl("popular", 0, true));
+        assertEquals(9 * HOUR, policy.nextSoftTtl("popular", 18 * HOUR, true));
+    }
+
+    @Test
+    public void softTtlStaysWithinItsRange() {
+        //popular: [6h / 4, min(6h * 4, 3 days)]
+        long ttl = 0;
+        for (int i = 0; i < 20; i++) {
+            ttl = policy.nextSoftTtl("popular", ttl, false);
+        }
+        assertEquals(24 * HOUR, ttl);
+        for (int i = 0; i < 20; i++) {
+            ttl = policy.nextSoftTtl("popular", ttl, true);
+        }
+        assertEquals(6 * HOUR / 4, ttl);
+
+        //trending: at most 1h * 4
+        assertEquals(4 * HOUR, policy.nextSoftTtl("trending", 10 * HOUR, false));
+    }
+
+    @Test
+    public void contentHashIgnoresOrderButNotContents() {
+        List<Movie> movies = Arrays.asList(movie("1"), movie("2"), movie("3"));
+        List<Movie> reordered = Arrays.asList(movie("3"), movie("1"), movie("2"));
+        List<Movie> replaced = Arrays.asList(movie("3"), movie("1"), movie("4"));
+        List<Movie> shorter = new ArrayList<>(movies.subList(0, 2));
+
+        assertEquals(CachePolicy.contentHash(movies), CachePolicy.contentHash(reordered));
+        assertNotEquals(CachePolicy.contentHash(movies), CachePolicy.contentHash(replaced));
+        assertNotEquals(CachePolicy.contentHash(movies), CachePolicy.contentHash(shorter));
+    }
+
+    private static Movie movie(String id) {
+        return new Movie(id, "Title " + id, "2024-01-01", null, null, "", 7, null, 0, null);
+    }
+}
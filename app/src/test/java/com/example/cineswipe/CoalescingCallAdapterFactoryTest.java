@@ -0,0 +1,152 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+import retrofit2.http.GET;
+import retrofit2.http.Query;
+
+public class CoalescingCallAdapterFactoryTest {
+    private static final String PAGE = "{\"page\":1,\"total_pages\":5,\"results\":[{\"id\":11,\"title\":\"Star Wars\"}]}";
+
+    interface Api {
+        @GET("movie/popular")
+        Call<MovieResponse> popular(@Query("page") int page);
+    }
+
+    private MockWebServer server;
+    private Api api;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        api = new Retrofit.Builder()
+                .baseUrl(server.url("/3/"))
+                .addCallAdapterFactory(new CoalescingCallAdapterFactory(TmdbTypeAdapters.GSON))
+                .addConverterFactory(GsonConverterFactory.create(TmdbTypeAdapters.GSON))
+                .build()
+                .create(Api.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void concurrentCallersShareOneRequestButNotOneBody() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody(PAGE).setBodyDelay(200, TimeUnit.MILLISECONDS));
+        List<MovieResponse> bodies = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            api.popular(1).enqueue(new Callback<MovieResponse>() {
+                @Override
+                public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
+                    //What a careless caller might do to its page
+                    response.body().getMovies().clear();
+                    bodies.add(response.body());
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(3, bodies.size());
+        assertNotSame(bodies.get(0), bodies.get(1));
+        assertNotSame(bodies.get(1), bodies.get(2));
+        assertNotSame(bodies.get(0).getMovies(), bodies.get(1).getMovies());
+    }
+
+    @Test
+    public void copiesKeepEveryField() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody(PAGE).setBodyDelay(200, TimeUnit.MILLISECONDS));
+        List<MovieResponse> bodies = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            api.popular(1).enqueue(new Callback<MovieResponse>() {
+                @Override
+                public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
+                    bodies.add(response.body());
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (MovieResponse body : bodies) {
+            assertEquals(1, body.getPage());
+            assertEquals(5, body.getTotalPages());
+            assertEquals("Star Wars", body.getMovies().get(0).getTitle());
+        }
+    }
+
+    @Test
+    public void cancelledCallersGetNoFailure() throws InterruptedException {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        AtomicInteger cancelledCallbacks = new AtomicInteger();
+        CountDownLatch kept = new CountDownLatch(1);
+
+        Call<MovieResponse> cancelled = api.popular(2);
+        cancelled.enqueue(new Callback<MovieResponse>() {
+            @Override
+            public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
+                cancelledCallbacks.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
+                cancelledCallbacks.incrementAndGet();
+            }
+        });
+        api.popular(2).enqueue(new Callback<MovieResponse>() {
+            @Override
+            public void onResponse(@NonNull Call<MovieResponse> call, @NonNull Response<MovieResponse> response) {
+                kept.countDown();
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<MovieResponse> call, @NonNull Throwable t) {
+                kept.countDown();
+            }
+        });
+        cancelled.cancel();
+
+        assertTrue(kept.await(5, TimeUnit.SECONDS));
+        assertEquals(0, cancelledCallbacks.get());
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+//Runs the blender against a fake TMDB discover/movie, callbacks queue up on a stand-in main thread
+public class DeckBlenderTest {
+    private static final int PAGE_SIZE = 20;
+
+    private MockWebServer server;
+    private ApiService apiService;
+    private final BlockingQueue<Runnable> main = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/3/"))
+                .callbackExecutor(main::add)
+                .addConverterFactory(GsonConverterFactory.create(TmdbTypeAdapters.GSON))
+                .build()
+                .create(ApiService.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void unauthorizedDoesNotExhaustTheSource() throws InterruptedException {
+        serve(request -> new MockResponse().setResponseCode(401)
+                .setBody("{\"status_code\":7,\"status_message\":\"Invalid API key\"}"));
+        DeckBlender blender = blender();
+
+        assertTrue(next(blender, 20).isEmpty());
+
+        assertFalse(blender.isExhausted());
+        assertEquals(1, blender.getCursors().get(0).nextPage);
+    }
+
+    @Test
+    public void notFoundIsRetriedOnTheNextPage() throws InterruptedException {
+        serve(request -> server.getRequestCount() == 1 ? new MockResponse().setResponseCode(404) : page(request, 10));
+        DeckBlender blender = blender();
+
+        assertTrue(next(blender, 20).isEmpty());
+        List<Movie> second = next(blender, 20);
+
+        assertEquals(PAGE_SIZE, second.size());
+        assertEquals("1", server.takeRequest().getRequestUrl().queryParameter("page"));
+        assertEquals("1", server.takeRequest().getRequestUrl().queryParameter("page"));
+    }
+
+    @Test
+    public void unprocessablePageEndsTheSource() throws InterruptedException {
+        //Claims many pages but refuses anything past the second, as TMDB does past page 500
+        serve(request -> pageNumber(request) > 2
+                ? new MockResponse().setResponseCode(422).setBody("{\"errors\":[\"page must be less than or equal to 500\"]}")
+                : page(request, 1000));
+        DeckBlender blender = blender();
+
+        for (int i = 0; i < 5 && !blender.isExhausted(); i++) {
+            next(blender, PAGE_SIZE);
+        }
+
+        assertTrue(blender.isExhausted());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    private DeckBlender blender() {
+        return new DeckBlender(new HashSet<>(), null)
+                .addSource("discover", 1, page -> apiService.getMoviesByGenres("key", "28", page));
+    }
+
+    //Runs queued callbacks until the blender deals
+    private List<Movie> next(DeckBlender blender, int target) throws InterruptedException {
+        List<List<Movie>> deliveries = new ArrayList<>();
+        blender.next(target, deliveries::add);
+        while (deliveries.isEmpty()) {
+            Runnable callback = main.poll(5, TimeUnit.SECONDS);
+            assertNotNull(callback);
+            callback.run();
+        }
+        return deliveries.get(0);
+    }
+
+    private void serve(Function<RecordedRequest, MockResponse> handler) {
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                return handler.apply(request);
+            }
+        });
+    }
+
+    private static int pageNumber(RecordedRequest request) {
+        return Integer.parseInt(request.getRequestUrl().queryParameter("page"));
+    }
+
+    private static MockResponse page(RecordedRequest request, int totalPages) {
+        int page = pageNumber(request);
+        StringBuilder results = new StringBuilder();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            if (results.length() > 0) {
+                results.append(',');
+            }
+            results.append("{\"id\":").append(page * 100 + i).append(",\"title\":\"Movie\"}");
+        }
+        return new MockResponse().setBody("{\"page\":" + page + ",\"total_pages\":" + totalPages
+                + ",\"results\":[" + results + "]}");
+    }
+}
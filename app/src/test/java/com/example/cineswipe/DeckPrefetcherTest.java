@@ -0,0 +1,110 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.junit.Test;
+
+//A user flicking through cards against a slow source, on a simulated clock: every swipe and every page
+//arrival happens in time order, as they would on the main thread
+public class DeckPrefetcherTest {
+    private static final int PAGE_SIZE = 20;
+    private static final int SWIPES = 400;
+
+    private long now;
+    private int remaining;
+    private int pagesRequested;
+    private final PriorityQueue<Arrival> arrivals = new PriorityQueue<>();
+
+    @Test
+    public void rapidSwipesOnASlowSourceNeverEmptyTheDeck() {
+        assertTrue(fewestCardsLeft(400, 3000) > 0);
+    }
+
+    //Browsing slowly, then flicking through as fast as the cards animate
+    @Test
+    public void swipeBurstsNeverEmptyTheDeck() {
+        assertTrue(fewestCardsLeft(2000, 1500, 200) > 0);
+    }
+
+    @Test
+    public void slowSwipesDoNotFetchFarAhead() {
+        fewestCardsLeft(5000, 1500);
+
+        //Two pages for the first deck, then roughly one per page swiped
+        assertTrue(pagesRequested + " pages", pagesRequested <= SWIPES / PAGE_SIZE + 3);
+    }
+
+    private int fewestCardsLeft(long swipeIntervalMs, long fetchLatencyMs) {
+        return fewestCardsLeft(swipeIntervalMs, fetchLatencyMs, swipeIntervalMs);
+    }
+
+    //Swipes SWIPES cards once the first page is in, the first quarter one every swipeIntervalMs and the rest
+    //one every burstIntervalMs, and returns the fewest cards ever left ahead of the top card
+    private int fewestCardsLeft(long swipeIntervalMs, long fetchLatencyMs, long burstIntervalMs) {
+        DeckPrefetcher prefetcher = new DeckPrefetcher(new DeckPrefetcher.PageLoader() {
+            @Override
+            public void loadPage(DeckPrefetcher.PageCallback callback) {
+                pagesRequested++;
+                arrivals.add(new Arrival(now + fetchLatencyMs, callback));
+            }
+
+            @Override
+            public int getRemainingCards() {
+                return remaining;
+            }
+        }, () -> now);
+        prefetcher.start();
+        deliverUntil(arrivals.peek().at);
+
+        int fewest = Integer.MAX_VALUE;
+        for (int i = 0; i < SWIPES; i++) {
+            deliverUntil(now + (i < SWIPES / 4 ? swipeIntervalMs : burstIntervalMs));
+            if (remaining == 0) {
+                return 0;
+            }
+            remaining--;
+            prefetcher.onCardSwiped();
+            fewest = Math.min(fewest, remaining);
+        }
+        System.out.println("swipe every " + swipeIntervalMs + "ms then " + burstIntervalMs + "ms, "
+                + fetchLatencyMs + "ms per page: " + fewest + " cards left at least, " + pagesRequested + " pages");
+        return fewest;
+    }
+
+    private void deliverUntil(long time) {
+        while (!arrivals.isEmpty() && arrivals.peek().at <= time) {
+            Arrival arrival = arrivals.poll();
+            now = arrival.at;
+            remaining += PAGE_SIZE;
+            arrival.callback.onPageLoaded(page());
+        }
+        now = time;
+    }
+
+    private static List<Movie> page() {
+        List<Movie> movies = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            movies.add(new Movie());
+        }
+        return Collections.unmodifiableList(movies);
+    }
+
+    private static class Arrival implements Comparable<Arrival> {
+        final long at;
+        final DeckPrefetcher.PageCallback callback;
+
+        Arrival(long at, DeckPrefetcher.PageCallback callback) {
+            this.at = at;
+            this.callback = callback;
+        }
+
+        @Override
+        public int compareTo(Arrival other) {
+            return Long.compare(at, other.at);
+        }
+    }
+}
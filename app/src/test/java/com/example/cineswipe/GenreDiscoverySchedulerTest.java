@@ -0,0 +1,242 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+//Runs the scheduler against a fake TMDB discover/movie; callbacks queue up on a stand-in main thread
+//that the test drains, so the order they run in is up to the test
+public class GenreDiscoverySchedulerTest {
+    private static final int PAGE_SIZE = 20;
+
+    private MockWebServer server;
+    private ApiService apiService;
+    private final BlockingQueue<Runnable> main = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/3/"))
+                .callbackExecutor(main::add)
+                .addConverterFactory(GsonConverterFactory.create(TmdbTypeAdapters.GSON))
+                .build()
+                .create(ApiService.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void deliversTheTargetWithoutRepeatingMovies() throws InterruptedException {
+        serve(request -> page(request, 3));
+        GenreDiscoveryScheduler scheduler = scheduler(2, "28", "35");
+
+        List<Movie> first = discover(scheduler, 30);
+        List<Movie> second = discover(scheduler, 30);
+
+        assertTrue(first.size() >= 30);
+        assertTrue(second.size() >= 30);
+        Set<String> ids = new HashSet<>();
+        for (Movie movie : first) {
+            assertTrue(ids.add(movie.getId()));
+        }
+        for (Movie movie : second) {
+            assertTrue(ids.add(movie.getId()));
+        }
+    }
+
+    @Test
+    public void callbacksQueuedBeforeFinishLeaveTheNextRunAlone() throws InterruptedException {
+        serve(request -> page(request, 3));
+        GenreDiscoveryScheduler scheduler = scheduler(3, "28", "35", "18");
+        List<List<Movie>> deliveries = new ArrayList<>();
+
+        //All three pages answered and waiting on the main thread, the first one finishes the run
+        scheduler.discover(1, deliveries::add);
+        List<Runnable> stale = take(3);
+        stale.remove(0).run();
+        assertEquals(1, deliveries.size());
+
+        //The next run asks for the two released pages again before the old callbacks get to run
+        scheduler.discover(1, deliveries::add);
+        for (Runnable callback : stale) {
+            callback.run();
+        }
+        for (Runnable callback : take(3)) {
+            callback.run();
+        }
+
+        assertEquals(2, deliveries.size());
+        assertEquals(PAGE_SIZE, deliveries.get(0).size());
+        assertEquals(PAGE_SIZE, deliveries.get(1).size());
+        for (DeckSnapshot.Cursor cursor : scheduler.getCursors()) {
+            assertTrue(cursor.name + " at page " + cursor.nextPage, cursor.nextPage >= 1);
+        }
+    }
+
+    @Test
+    public void overlappingDiscoversTakeTurns() throws InterruptedException {
+        serve(request -> page(request, 3));
+        //Three combinations, all of them in flight for the first run
+        GenreDiscoveryScheduler scheduler = scheduler(4, "28", "35");
+        List<List<Movie>> deliveries = new ArrayList<>();
+
+        scheduler.discover(20, deliveries::add);
+        scheduler.discover(20, deliveries::add);
+        while (deliveries.size() < 2) {
+            Runnable callback = main.poll(5, TimeUnit.SECONDS);
+            assertNotNull(callback);
+            callback.run();
+        }
+
+        assertTrue(deliveries.get(0).size() >= 20);
+        assertTrue(deliveries.get(1).size() >= 20);
+    }
+
+    @Test
+    public void peekNamesTheFirstRequests() throws InterruptedException {
+        serve(request -> page(request, 3));
+        GenreDiscoveryScheduler scheduler = scheduler(4, "28", "35", "18");
+
+        List<String> peeked = scheduler.peekCombinations();
+        scheduler.discover(1000, movies -> { });
+        Set<String> requested = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            requested.add(server.takeRequest(5, TimeUnit.SECONDS).getRequestUrl().queryParameter("with_genres"));
+        }
+
+        assertEquals(Arrays.asList("28", "35", "18", "28,35"), peeked);
+        assertEquals(new HashSet<>(peeked), requested);
+    }
+
+    @Test
+    public void unauthorizedDoesNotExhaustTheGenres() throws InterruptedException {
+        serve(request -> new MockResponse().setResponseCode(401)
+                .setBody("{\"status_code\":7,\"status_message\":\"Invalid API key\"}"));
+        GenreDiscoveryScheduler scheduler = scheduler(4, "28", "35");
+
+        assertTrue(discover(scheduler, 20).isEmpty());
+
+        assertFalse(scheduler.isExhausted());
+        for (DeckSnapshot.Cursor cursor : scheduler.getCursors()) {
+            assertEquals(1, cursor.nextPage);
+        }
+    }
+
+    @Test
+    public void unprocessablePageEndsTheCombination() throws InterruptedException {
+        //Claims many pages but refuses anything past the second, as TMDB does past page 500
+        serve(request -> pageNumber(request) > 2
+                ? new MockResponse().setResponseCode(422).setBody("{\"errors\":[\"page must be less than or equal to 500\"]}")
+                : page(request, 1000));
+        GenreDiscoveryScheduler scheduler = scheduler(4, "28");
+
+        for (int i = 0; i < 5 && !scheduler.isExhausted(); i++) {
+            discover(scheduler, 100);
+        }
+
+        assertTrue(scheduler.isExhausted());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void emptyPageEndsTheCombination() throws InterruptedException {
+        serve(request -> pageNumber(request) > 1 ? page(request, 0) : page(request, 1000));
+        GenreDiscoveryScheduler scheduler = scheduler(4, "28");
+
+        assertEquals(PAGE_SIZE, discover(scheduler, 100).size());
+        discover(scheduler, 100);
+
+        assertTrue(scheduler.isExhausted());
+    }
+
+    private GenreDiscoveryScheduler scheduler(int maxConcurrent, String... genres) {
+        List<String> list = new ArrayList<>();
+        for (String genre : genres) {
+            list.add(genre);
+        }
+        return new GenreDiscoveryScheduler(apiService, "key", list, new HashSet<>(), maxConcurrent);
+    }
+
+    //Runs queued callbacks until the run delivers
+    private List<Movie> discover(GenreDiscoveryScheduler scheduler, int target) throws InterruptedException {
+        List<List<Movie>> deliveries = new ArrayList<>();
+        scheduler.discover(target, deliveries::add);
+        while (deliveries.isEmpty()) {
+            Runnable callback = main.poll(5, TimeUnit.SECONDS);
+            assertNotNull(callback);
+            callback.run();
+        }
+        assertEquals(1, deliveries.size());
+        return deliveries.get(0);
+    }
+
+    private List<Runnable> take(int count) throws InterruptedException {
+        List<Runnable> callbacks = new ArrayList<>();
+        while (callbacks.size() < count) {
+            Runnable callback = main.poll(5, TimeUnit.SECONDS);
+            assertNotNull(callback);
+            callbacks.add(callback);
+        }
+        return callbacks;
+    }
+
+    private void serve(Function<RecordedRequest, MockResponse> handler) {
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                return handler.apply(request);
+            }
+        });
+    }
+
+    private static int pageNumber(RecordedRequest request) {
+        return Integer.parseInt(request.getRequestUrl().queryParameter("page"));
+    }
+
+    //Ids are unique per genre and page; a pair shares its first genre's movies for half the page
+    private static MockResponse page(RecordedRequest request, int totalPages) {
+        String[] genres = request.getRequestUrl().queryParameter("with_genres").split(",");
+        int page = pageNumber(request);
+        StringBuilder results = new StringBuilder();
+        if (totalPages > 0) {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                String genre = genres.length > 1 && i >= PAGE_SIZE / 2 ? genres[0] + genres[1] : genres[0];
+                if (results.length() > 0) {
+                    results.append(',');
+                }
+                results.append("{\"id\":").append(genre).append(page).append(String.format("%02d", i))
+                        .append(",\"title\":\"Movie\"}");
+            }
+        }
+        return new MockResponse().setBody("{\"page\":" + page + ",\"total_pages\":" + totalPages
+                + ",\"results\":[" + results + "]}");
+    }
+}
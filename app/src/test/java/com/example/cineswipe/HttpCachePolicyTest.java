@@ -0,0 +1,160 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+//Repeat loads against a fake TMDB, counting what actually reaches the server
+public class HttpCachePolicyTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private Cache cache;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        cache = new Cache(folder.newFolder("http_cache"), 1024 * 1024);
+        //Same interceptors and cache as ApiClient, without a Context the offline check is skipped
+        client = new OkHttpClient.Builder()
+                .cache(cache)
+                .addInterceptor(HttpCachePolicy.offlineInterceptor(null))
+                .addNetworkInterceptor(HttpCachePolicy.networkInterceptor())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        cache.close();
+    }
+
+    @Test
+    public void repeatLoadsWithinMaxAgeStayOffTheNetwork() throws IOException {
+        server.enqueue(new MockResponse().setBody("{\"results\":[]}"));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("{\"results\":[]}", get("movie/popular?page=1"));
+        }
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(3, cache.requestCount());
+        assertEquals(1, cache.networkCount());
+        assertEquals(2, cache.hitCount());
+    }
+
+    @Test
+    public void overrideRulesReplaceTheServerMaxAge() throws IOException {
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=0").setBody("{\"genres\":[]}"));
+
+        get("genre/movie/list");
+        get("genre/movie/list");
+
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void serverMaxAgeIsKeptWithoutOverride() throws IOException {
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=5").setBody("a"));
+
+        Response response = execute("movie/top_rated?page=1");
+        response.close();
+
+        assertEquals("max-age=5", response.header("Cache-Control"));
+    }
+
+    @Test
+    public void noStoreIsNeverCached() throws IOException {
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "no-store").setBody("a"));
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "no-store").setBody("b"));
+
+        assertEquals("a", get("movie/popular?page=1"));
+        assertEquals("b", get("movie/popular?page=1"));
+
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void expiredEntriesRevalidateWithConditionalRequests() throws IOException, InterruptedException {
+        //No rule for this path, so the server's no-cache stands and every load revalidates
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "no-cache").setHeader("ETag", "\"v1\"").setBody("body"));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("body", get("configuration"));
+        }
+
+        assertEquals(3, server.getRequestCount());
+        RecordedRequest first = server.takeRequest();
+        assertNull(first.getHeader("If-None-Match"));
+        int conditional = 0;
+        for (int i = 0; i < 2; i++) {
+            if ("\"v1\"".equals(server.takeRequest().getHeader("If-None-Match"))) {
+                conditional++;
+            }
+        }
+        assertEquals(2, conditional);
+        assertEquals(3, cache.networkCount());
+        //Both 304s were answered with the stored body
+        assertEquals(2, cache.hitCount());
+    }
+
+    @Test
+    public void revalidationReachesTheServerWithinMaxAge() throws IOException, InterruptedException {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("page"));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+        assertEquals("page", get("movie/top_rated?page=1"));
+        Request revalidate = new Request.Builder()
+                .url(server.url("/3/movie/top_rated?page=1"))
+                .header("Cache-Control", HttpCachePolicy.REVALIDATE)
+                .build();
+        try (Response response = client.newCall(revalidate).execute()) {
+            assertEquals("page", response.body().string());
+        }
+
+        //Well within top_rated's max-age, yet asked again, conditionally
+        assertEquals(2, server.getRequestCount());
+        server.takeRequest();
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void staleEntryIsServedWhenTheNetworkFails() throws IOException {
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=0").setBody("cached"));
+        assertEquals("cached", get("configuration"));
+
+        //Connection refused from here on
+        server.shutdown();
+
+        assertEquals("cached", get("configuration"));
+    }
+
+    private String get(String path) throws IOException {
+        try (Response response = execute(path)) {
+            return response.body().string();
+        }
+    }
+
+    private Response execute(String path) throws IOException {
+        Request request = new Request.Builder().url(server.url("/3/" + path)).build();
+        return client.newCall(request).execute();
+    }
+}
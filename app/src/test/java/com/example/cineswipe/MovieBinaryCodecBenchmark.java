@@ -0,0 +1,196 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+//Size and speed of the binary cache rows against the JSON they replaced, for a page of list
+//movies and a few detail movies with cast
+public class MovieBinaryCodecBenchmark {
+    private static final int ITERATIONS = 1000;
+    //What PreferencesHelper used to read the cached list back with
+    private static final Type MOVIE_LIST_TYPE = new TypeToken<List<Movie>>() {}.getType();
+
+    private static final List<Movie> MOVIES = movies();
+
+    @Test
+    public void rowsRoundTripAndMatchTheOneShotEncoding() throws IOException {
+        try (MovieBinaryCodec.Encoder encoder = new MovieBinaryCodec.Encoder()) {
+            for (Movie movie : MOVIES) {
+                byte[] row = encoder.encode(movie);
+                assertArrayEquals(MovieBinaryCodec.encode(movie), row);
+                //Genre and CastMember have no equals(), their JSON does
+                assertEquals(TmdbTypeAdapters.MOVIE.toJson(movie),
+                        TmdbTypeAdapters.MOVIE.toJson(MovieBinaryCodec.decode(row)));
+            }
+        }
+        assertEquals(TmdbTypeAdapters.MOVIE_LIST.toJson(MOVIES),
+                TmdbTypeAdapters.MOVIE_LIST.toJson(MovieBinaryCodec.decodeList(MovieBinaryCodec.encodeList(MOVIES))));
+    }
+
+    @Test
+    public void binaryRowsAreSmallerThanJson() {
+        int binary = 0;
+        int json = 0;
+        for (Movie movie : MOVIES) {
+            binary += MovieBinaryCodec.encode(movie).length;
+            json += TmdbTypeAdapters.MOVIE.toJson(movie).getBytes(StandardCharsets.UTF_8).length;
+        }
+        System.out.println("rows: binary " + binary + " bytes, json " + json + " bytes");
+
+        assertTrue(binary < json);
+    }
+
+    @Test
+    public void batchEncoderAllocatesLessThanOneShotRows() {
+        Benchmarks.Result oneShot = Benchmarks.measure(ITERATIONS, () -> {
+            for (Movie movie : MOVIES) {
+                MovieBinaryCodec.encode(movie);
+            }
+        });
+        Benchmarks.Result batch = Benchmarks.measure(ITERATIONS, () -> {
+            try (MovieBinaryCodec.Encoder encoder = new MovieBinaryCodec.Encoder()) {
+                for (Movie movie : MOVIES) {
+                    encoder.encode(movie);
+                }
+            }
+        });
+        Benchmarks.report("encode rows, Deflater per row", oneShot);
+        Benchmarks.report("encode rows, Deflater per batch", batch);
+
+        assertTrue(batch.bytesPerOp < oneShot.bytesPerOp);
+    }
+
+    @Test
+    public void decodeAgainstJson() {
+        List<byte[]> rows = new ArrayList<>();
+        List<String> json = new ArrayList<>();
+        for (Movie movie : MOVIES) {
+            rows.add(MovieBinaryCodec.encode(movie));
+            json.add(TmdbTypeAdapters.MOVIE.toJson(movie));
+        }
+
+        Benchmarks.report("decode rows, binary", Benchmarks.measure(ITERATIONS, () -> {
+            for (byte[] row : rows) {
+                MovieDatabase.decode(row);
+            }
+        }));
+        Benchmarks.report("decode rows, json", Benchmarks.measure(ITERATIONS, () -> {
+            for (String row : json) {
+                MovieDatabase.decode(row.getBytes(StandardCharsets.UTF_8));
+            }
+        }));
+    }
+
+    //A detail row written by the version 2 encoder, with a per-movie deflated overview
+    private static final String VERSION_2_ROW = "cb0205064472616d610e456477617264204e6f72746f6e094e61727261746f720a4272616420506974740d54796c6572"
+            + "2044757264656e010fa6040b466967687420436c75620b313939392d31302d3135072f702e6a706700e9016678dac58d"
+            + "d109c3300c4457b9014277c828c2ba60832383a5da74fba85da23f07efe0f14e4c469b54288325dae2f7794f73c44054"
+            + "c26fe93d611b76e5247270c9ddfa074bac79a51e189698c6d54c7fdae88a224e6c7118574aa50fa7be70fe21fa00f115"
+            + "54c9f1418b0101120102b30602039f020405";
+
+    @Test
+    public void readsVersion2Rows() throws IOException {
+        byte[] row = new byte[VERSION_2_ROW.length() / 2];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = (byte) Integer.parseInt(VERSION_2_ROW.substring(2 * i, 2 * i + 2), 16);
+        }
+        String overview = "A retired detective returns to the small town where her family vanished, only to find "
+                + "the old case was never closed.";
+        Movie movie = MovieBinaryCodec.decode(row);
+
+        assertEquals("550", movie.getId());
+        assertEquals("Fight Club", movie.getTitle());
+        assertEquals(overview + " " + overview, movie.getOverview());
+        assertEquals(8.433, movie.getVoteAverage(), 0);
+        assertEquals("Drama", movie.getGenreList().get(0).getName());
+        assertEquals("Tyler Durden", movie.getCastList().get(1).getCharacter());
+    }
+
+    @Test
+    public void sharedTableListIsSmallerThanRows() {
+        byte[] list = MovieBinaryCodec.encodeList(MOVIES);
+        int rows = 0;
+        for (Movie movie : MOVIES) {
+            rows += MovieBinaryCodec.encode(movie).length;
+        }
+        int json = new Gson().toJson(MOVIES).getBytes(StandardCharsets.UTF_8).length;
+        System.out.println("list: one payload " + list.length + " bytes, rows " + rows + " bytes, reflective json "
+                + json + " bytes");
+
+        //The detail movies repeat the same genre and cast names, the shared table stores them once
+        assertTrue(list.length < rows);
+    }
+
+    //Cold start reads a whole category, against the reflective Gson the XML cache was read with
+    @Test
+    public void listDecodeBeatsReflectiveGson() {
+        byte[] list = MovieBinaryCodec.encodeList(MOVIES);
+        Gson gson = new Gson();
+        String json = gson.toJson(MOVIES);
+
+        Benchmarks.Result binary = Benchmarks.measure(ITERATIONS, () -> {
+            try {
+                MovieBinaryCodec.decodeList(list);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        Benchmarks.Result reflective = Benchmarks.measure(ITERATIONS,
+                () -> gson.fromJson(json, MOVIE_LIST_TYPE));
+        Benchmarks.report("decode list, binary shared table", binary);
+        Benchmarks.report("decode list, reflective Gson", reflective);
+
+        assertTrue(binary.nanosPerOp < reflective.nanosPerOp);
+        assertTrue(binary.bytesPerOp < reflective.bytesPerOp);
+    }
+
+    private static List<Movie> movies() {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String overview = overview(i);
+            Movie movie = new Movie(String.valueOf(550 + i), "Title " + i, "2024-0" + (i % 9 + 1) + "-15",
+                    "/poster" + i + ".jpg", "/backdrop" + i + ".jpg", overview, 7.1 + i / 100.0, null, 0, null);
+            movie.setGenreIds(new int[]{28, 12, 878});
+            movies.add(movie);
+        }
+        for (int i = 0; i < 5; i++) {
+            String overview = overview(20 + i);
+            List<CastMember> cast = new ArrayList<>();
+            for (int c = 0; c < 15; c++) {
+                cast.add(new CastMember(1000 + c, "Actor Name " + c, c % 3 == 0 ? null : "Role " + c));
+            }
+            movies.add(new Movie(String.valueOf(600 + i), "Detail " + i, "2023-11-0" + (i + 1),
+                    "/detail" + i + ".jpg", null, overview, 6.5, Arrays.asList(new Genre(28, "Action"),
+                    new Genre(12, "Adventure")), 120 + i, cast));
+        }
+        return movies;
+    }
+
+    //Different text for every movie, so a list doesn't compress better than real overviews would
+    private static String overview(int seed) {
+        String[] words = {"a", "the", "young", "hero", "must", "cross", "war-torn", "galaxy", "to", "recover",
+                "stolen", "artifact", "before", "empire", "can", "use", "it", "against", "last", "free", "worlds",
+                "facing", "betrayal", "loss", "and", "final", "choice", "detective", "small", "town", "family",
+                "secret", "years", "after", "when", "her", "his", "their", "old", "friend", "returns", "with",
+                "mysterious", "plan", "that", "could", "change", "everything", "in", "of", "city", "night"};
+        Random random = new Random(seed);
+        StringBuilder overview = new StringBuilder();
+        int length = 30 + random.nextInt(40);
+        for (int w = 0; w < length; w++) {
+            overview.append(w == 0 ? "" : " ").append(words[random.nextInt(words.length)]);
+        }
+        return overview.append('.').toString();
+    }
+}
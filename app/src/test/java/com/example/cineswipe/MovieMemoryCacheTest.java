@@ -0,0 +1,44 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class MovieMemoryCacheTest {
+
+    @Test
+    public void peekDoesNotChangeWhatIsEvicted() {
+        MovieMemoryCache<String, String> cache = new MovieMemoryCache<>(2, value -> 1);
+        cache.put("a", "A", 1);
+        cache.put("b", "B", 2);
+
+        assertEquals("A", cache.peek("a").getValue());
+        cache.put("c", "C", 3);
+
+        //"a" is still the least recently used, a get() would have kept it
+        assertNull(cache.peek("a"));
+        assertEquals("B", cache.peek("b").getValue());
+        assertEquals(0, cache.getHitCount() + cache.getMissCount());
+    }
+
+    @Test
+    public void peekFollowsReplaceRemoveAndClear() {
+        MovieMemoryCache<String, String> cache = new MovieMemoryCache<>(10, value -> 1);
+        cache.put("a", "old", 1);
+        cache.put("a", "new", 2);
+        MovieMemoryCache.Entry<String> entry = cache.peek("a");
+
+        assertEquals("new", entry.getValue());
+        //An older write doesn't replace a newer one
+        cache.put("a", "stale", 1);
+        assertSame(entry, cache.peek("a"));
+
+        cache.remove("a");
+        assertNull(cache.peek("a"));
+        cache.put("b", "B", 1);
+        cache.clear();
+        assertNull(cache.peek("b"));
+    }
+}
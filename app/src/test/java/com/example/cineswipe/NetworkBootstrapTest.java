@@ -0,0 +1,156 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import javax.net.SocketFactory;
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+//Time-to-first-byte of a feed request, cold and after NetworkBootstrap.preconnect(), as FirstByteListener
+//reports it. The fake network charges a DNS lookup, one round trip per TCP handshake and one per request.
+//MockWebServer speaks plain HTTP, so a real cold TLS connection costs at least one round trip more
+public class NetworkBootstrapTest {
+    private static final long DNS_MILLIS = 30;
+    private static final long ROUND_TRIP_MILLIS = 40;
+
+    private MockWebServer server;
+    private HttpUrl feedUrl;
+    private final List<NetworkBootstrap.FirstByte> timings = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        feedUrl = server.url("/3/discover/movie");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void coldRequestPaysForDnsAndConnect() throws IOException {
+        NetworkBootstrap.FirstByte cold = firstByte(client(), false);
+        System.out.println("cold: " + cold);
+
+        assertFalse(cold.reusedConnection());
+        assertTrue(cold.ttfbNanos >= millis(DNS_MILLIS + 2 * ROUND_TRIP_MILLIS));
+    }
+
+    @Test
+    public void preconnectedRequestOnlyPaysForItsRoundTrip() throws IOException {
+        OkHttpClient client = client();
+        NetworkBootstrap.FirstByte warm = firstByte(client, true);
+        System.out.println("pre-connected: " + warm);
+
+        assertTrue(warm.reusedConnection());
+        assertTrue(warm.ttfbNanos >= millis(ROUND_TRIP_MILLIS));
+        assertTrue(warm.ttfbNanos < millis(DNS_MILLIS + 2 * ROUND_TRIP_MILLIS));
+    }
+
+    @Test
+    public void warmupCallsAreNotTimed() {
+        OkHttpClient client = client();
+        server.enqueue(new MockResponse());
+
+        NetworkBootstrap.preconnect(client, server.url("/3/").toString());
+
+        assertEquals(1, server.getRequestCount());
+        assertTrue(timings.isEmpty());
+    }
+
+    private NetworkBootstrap.FirstByte firstByte(OkHttpClient client, boolean preconnect) throws IOException {
+        if (preconnect) {
+            server.enqueue(new MockResponse());
+            NetworkBootstrap.preconnect(client, server.url("/3/").toString());
+        }
+        server.enqueue(new MockResponse().setBody("{\"page\":1,\"results\":[]}")
+                .setHeadersDelay(ROUND_TRIP_MILLIS, TimeUnit.MILLISECONDS));
+        try (Response response = client.newCall(new Request.Builder().url(feedUrl).build()).execute()) {
+            assertTrue(response.isSuccessful());
+        }
+        assertEquals(1, timings.size());
+        return timings.get(0);
+    }
+
+    private OkHttpClient client() {
+        return new OkHttpClient.Builder()
+                .dns(new SlowDns())
+                .socketFactory(new SlowSocketFactory())
+                .eventListenerFactory(call -> NetworkBootstrap.firstByteListener(call, timings::add))
+                .build();
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class SlowDns implements Dns {
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            sleep(DNS_MILLIS);
+            return Dns.SYSTEM.lookup(hostname);
+        }
+    }
+
+    //Every new connection waits out a SYN/SYN-ACK round trip first
+    private static class SlowSocketFactory extends SocketFactory {
+        @Override
+        public Socket createSocket() {
+            return new Socket() {
+                @Override
+                public void connect(SocketAddress endpoint, int timeout) throws IOException {
+                    sleep(ROUND_TRIP_MILLIS);
+                    super.connect(endpoint, timeout);
+                }
+            };
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+//A heavy user's history: 120,000 swiped titles spread over today's TMDB id range, then the lookups
+//a deck does before cards go in
+public class SeenMovieFilterBenchmark {
+    private static final int SWIPED = 120_000;
+    //Newest TMDB movie ids are a little above 1.3 million
+    private static final int MAX_TMDB_ID = 1_300_000;
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final int ITERATIONS = 1000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private SeenMovieFilter filter;
+    private String[] swiped;
+    private String[] lookups;
+    private List<Movie> page;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "seen_movies.bits");
+        filter = new SeenMovieFilter(file);
+        Random random = new Random(7);
+        boolean[] taken = new boolean[MAX_TMDB_ID + 1];
+        swiped = new String[SWIPED];
+        for (int i = 0; i < SWIPED; i++) {
+            int id;
+            do {
+                id = 2 + random.nextInt(MAX_TMDB_ID - 1);
+            } while (taken[id]);
+            taken[id] = true;
+            swiped[i] = String.valueOf(id);
+            filter.markSeen(swiped[i]);
+        }
+        //Half swiped, half not, as a deck refill sees them
+        lookups = new String[1000];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = i % 2 == 0 ? swiped[random.nextInt(SWIPED)]
+                    : String.valueOf(2 + random.nextInt(MAX_TMDB_ID - 1));
+        }
+        page = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            page.add(new Movie(lookups[i], "Title " + i, null, null, null, null, 0, null, 0, null));
+        }
+    }
+
+    @Test
+    public void fileStaysSmallAndSurvivesReopening() {
+        long expectedBytes = ((long) (MAX_TMDB_ID >>> 3) / CHUNK_BYTES + 1) * CHUNK_BYTES;
+        System.out.println(SWIPED + " swiped ids: " + file.length() + " bytes");
+
+        assertTrue(file.length() <= expectedBytes);
+        assertEquals(SWIPED, filter.size());
+
+        SeenMovieFilter reopened = new SeenMovieFilter(file);
+        assertEquals(SWIPED, reopened.size());
+        for (String id : swiped) {
+            assertTrue(reopened.contains(id));
+        }
+        assertFalse(reopened.contains(String.valueOf(MAX_TMDB_ID + 1)));
+    }
+
+    @Test
+    public void containsIsConstantTimeAndDoesNotAllocate() {
+        Benchmarks.Result result = Benchmarks.measure(ITERATIONS, () -> {
+            for (String id : lookups) {
+                filter.contains(id);
+            }
+        });
+        Benchmarks.report("contains x" + lookups.length, result);
+
+        //Well under a microsecond per id, and no garbage per lookup
+        assertTrue(result.nanosPerOp / lookups.length + " ns", result.nanosPerOp / lookups.length < 1000);
+        assertTrue(result.bytesPerOp + " bytes", result.bytesPerOp < lookups.length);
+    }
+
+    @Test
+    public void filterUnseen() {
+        Benchmarks.Result result = Benchmarks.measure(ITERATIONS, () -> filter.filterUnseen(page));
+        Benchmarks.report("filterUnseen " + page.size() + " candidates", result);
+
+        //One frame's worth of work would be 16 ms
+        assertTrue(result.nanosPerOp / 1_000_000 + " ms", result.nanosPerOp < 1_000_000);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+//Building the index over a cache-sized corpus and asking it for "more like this". Overviews draw words
+//from a skewed vocabulary so some words are near-stopwords and most are rare, as in real overviews
+public class SimilarityIndexBenchmark {
+    private static final int MOVIES = 5_000;
+    private static final int VOCABULARY = 20_000;
+    private static final int OVERVIEW_WORDS = 45;
+    private static final int ITERATIONS = 200;
+
+    private static List<Movie> movies;
+    private static SimilarityIndex index;
+
+    @BeforeClass
+    public static void setUp() {
+        movies = movies(new Random(5));
+        index = new SimilarityIndex(null);
+        long start = System.nanoTime();
+        for (Movie movie : movies) {
+            index.add(movie);
+        }
+        System.out.println("build " + MOVIES + " movies: " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    @Test
+    public void nearDuplicateRanksFirst() {
+        Movie base = movies.get(42);
+        SimilarityIndex withDuplicate = new SimilarityIndex(null);
+        for (Movie movie : movies) {
+            withDuplicate.add(movie);
+        }
+        withDuplicate.add(new Movie("duplicate", "Title", "2000-01-01", null, null, base.getOverview(), 7.0,
+                base.getGenreList(), 100, base.getCastList()));
+
+        int[] top = withDuplicate.query(base, 3);
+
+        //Documents are numbered in insertion order, the duplicate went in last
+        assertEquals(MOVIES, top[0]);
+    }
+
+    @Test
+    public void queryNeverReturnsTheMovieItself() {
+        for (int i = 0; i < 50; i++) {
+            int[] similar = index.query(movies.get(i), SimilarityIndex.DEFAULT_RESULTS);
+            assertEquals(SimilarityIndex.DEFAULT_RESULTS, similar.length);
+            for (int doc : similar) {
+                assertTrue(doc != i);
+            }
+        }
+    }
+
+    @Test
+    public void query() {
+        Random random = new Random(7);
+        Benchmarks.report("query " + MOVIES + " movies", Benchmarks.measure(ITERATIONS,
+                () -> index.query(movies.get(random.nextInt(MOVIES)), SimilarityIndex.DEFAULT_RESULTS)));
+    }
+
+    private static List<Movie> movies(Random random) {
+        String[] vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 4 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < MOVIES; i++) {
+            StringBuilder overview = new StringBuilder();
+            for (int w = 0; w < OVERVIEW_WORDS; w++) {
+                int word = (int) Math.min(VOCABULARY - 1, Math.abs(random.nextGaussian()) * 3000);
+                overview.append(vocabulary[word]).append(' ');
+            }
+            List<CastMember> cast = new ArrayList<>();
+            for (int c = 0; c < 8; c++) {
+                cast.add(new CastMember(1 + random.nextInt(200_000), "Actor", "Role"));
+            }
+            List<Genre> genres = new ArrayList<>();
+            int genreCount = 2 + random.nextInt(2);
+            for (int g = 0; g < genreCount; g++) {
+                genres.add(new Genre(1 + random.nextInt(19), "Genre"));
+            }
+            movies.add(new Movie(String.valueOf(i), "Title", "2000-01-01", null, null, overview.toString(), 7.0,
+                    genres, 100, cast));
+        }
+        return movies;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+//Ranking a large candidate pool after a few hundred swipes, the work done on the main thread when a page lands.
+//10,000 candidates, up from 500, is far more than the deck ever holds; it still has to fit one 16 ms frame
+public class SwipeRankerBenchmark {
+    private static final int ITERATIONS = 200;
+    private static final int RANK_ITERATIONS = 10;
+    private static final int PAGE = 10_000;
+    private static final double FRAME_BUDGET_NANOS = 16_000_000;
+    private static final int SWIPES = 300;
+    private static final int LIKED_GENRE = 18;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private SwipeRanker ranker;
+    private List<Movie> page;
+
+    @Before
+    public void setUp() throws IOException {
+        ranker = new SwipeRanker(new File(folder.getRoot(), "swipe_ranker.bin"), CachePolicy.Clock.SYSTEM);
+        Random random = new Random(1);
+        for (int i = 0; i < SWIPES; i++) {
+            Movie movie = movie(random, i);
+            ranker.onSwiped(movie, contains(movie.getGenreIds(), LIKED_GENRE));
+        }
+        page = new ArrayList<>();
+        for (int i = 0; i < PAGE; i++) {
+            page.add(movie(random, SWIPES + i));
+        }
+    }
+
+    @Test
+    public void rankKeepsEveryCandidateAndLeadsWithTheLikedGenre() {
+        List<Movie> ranked = ranker.rank(page);
+
+        assertEquals(PAGE, ranked.size());
+        assertEquals(new HashSet<>(page), new HashSet<>(ranked));
+        assertTrue(contains(ranked.get(0).getGenreIds(), LIKED_GENRE));
+    }
+
+    @Test
+    public void weightLookupsDoNotAllocate() {
+        Movie movie = page.get(0);
+        int features = movie.getGenreIds().length + 2;
+        Benchmarks.Result score = Benchmarks.measure(ITERATIONS * 500, () -> ranker.score(movie));
+        Benchmarks.report("score one candidate", score);
+
+        //The feature key array is all a score allocates, with less than one more object of slack for
+        //the counter; a boxed map adds a Long per lookup
+        assertTrue(score.bytesPerOp + " bytes", score.bytesPerOp < 16 + 8 * features + 16);
+    }
+
+    @Test
+    public void rankFitsOneFrame() {
+        Benchmarks.Result rank = Benchmarks.measure(RANK_ITERATIONS, () -> ranker.rank(page));
+        Benchmarks.report("rank " + PAGE + " candidates", rank);
+        System.out.println("frame budget 16 ms: " + (rank.nanosPerOp < FRAME_BUDGET_NANOS ? "pass" : "fail"));
+
+        assertTrue(rank.nanosPerOp / 1_000_000 + " ms", rank.nanosPerOp < FRAME_BUDGET_NANOS);
+    }
+
+    @Test
+    public void equalScoresKeepTheirOrder() {
+        List<Movie> same = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            Movie movie = new Movie(String.valueOf(i), "Title " + i, null, null, null, null, 0, null, 0, null);
+            movie.setGenreIds(new int[0]);
+            same.add(movie);
+        }
+
+        assertEquals(same, ranker.rank(same));
+    }
+
+    //Two distinct genres, a decade and a rating band
+    private static Movie movie(Random random, int id) {
+        int first = random.nextInt(19) + 10;
+        int second = first + 1 + random.nextInt(5);
+        Movie movie = new Movie(String.valueOf(id), "Title " + id, (1950 + random.nextInt(75)) + "-06-01",
+                null, null, null, 5 + random.nextInt(40) / 10.0, null, 0, null);
+        movie.setGenreIds(new int[]{first, second});
+        return movie;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
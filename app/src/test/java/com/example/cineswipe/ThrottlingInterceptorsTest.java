@@ -0,0 +1,133 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+//A fake TMDB answering 429 to everything, against the interceptors in ApiClient's order
+public class ThrottlingInterceptorsTest {
+    private static final int RETRIES = 2;
+    private static final int FAILURE_THRESHOLD = 3;
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void apiClientThrottlesInTheApplicationChain() {
+        OkHttpClient client = ApiClient.getHttpClient();
+
+        boolean applicationChain = false;
+        for (Object interceptor : client.interceptors()) {
+            applicationChain |= interceptor instanceof RateLimitInterceptor;
+        }
+        assertTrue(applicationChain);
+        for (Object interceptor : client.networkInterceptors()) {
+            assertFalse(interceptor instanceof RateLimitInterceptor);
+        }
+    }
+
+    @Test
+    public void storm429OpensTheCircuitAfterPacedRetries() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+        }
+        CircuitBreakerInterceptor breaker = new CircuitBreakerInterceptor(FAILURE_THRESHOLD, 60_000);
+        //Burst of 2 then 20 a second: the 9 attempts below need at least 350ms
+        OkHttpClient client = client(breaker, new RateLimitInterceptor(2, 20));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            try (Response response = client.newCall(request("movie/popular?page=" + i)).execute()) {
+                assertEquals(429, response.code());
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(FAILURE_THRESHOLD * (RETRIES + 1), server.getRequestCount());
+        assertTrue("took " + elapsedMs + "ms", elapsedMs >= 300);
+        assertEquals(CircuitBreakerInterceptor.State.OPEN, breaker.getState());
+
+        //Fails fast without reaching TMDB or waiting for a token
+        try {
+            client.newCall(request("movie/popular?page=9")).execute().close();
+            fail();
+        } catch (CircuitBreakerInterceptor.CircuitOpenException expected) {
+            assertEquals(FAILURE_THRESHOLD * (RETRIES + 1), server.getRequestCount());
+        }
+    }
+
+    @Test
+    public void throttledCallsDoNotHoldConnections() throws InterruptedException {
+        int calls = 4;
+        for (int i = 0; i < calls; i++) {
+            server.enqueue(new MockResponse().setBody("{}"));
+        }
+        //One token at a time, a call waiting for one has not connected yet
+        OkHttpClient client = client(new CircuitBreakerInterceptor(100, 60_000), new RateLimitInterceptor(1, 10));
+        CountDownLatch done = new CountDownLatch(calls);
+
+        for (int i = 0; i < calls; i++) {
+            client.newCall(request("movie/popular?page=" + i)).enqueue(new Callback() {
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull Response response) {
+                    response.close();
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        int connections = 0;
+        for (int i = 0; i < calls; i++) {
+            if (server.takeRequest().getSequenceNumber() == 0) {
+                connections++;
+            }
+        }
+        assertEquals(1, connections);
+    }
+
+    private OkHttpClient client(CircuitBreakerInterceptor breaker, RateLimitInterceptor limiter) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(HttpCachePolicy.offlineInterceptor(null))
+                .addInterceptor(breaker)
+                .addInterceptor(new RetryInterceptor(RETRIES))
+                .addInterceptor(limiter)
+                .addNetworkInterceptor(HttpCachePolicy.networkInterceptor())
+                .build();
+    }
+
+    private Request request(String path) {
+        return new Request.Builder().url(server.url("/3/" + path)).build();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.cineswipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+//A 20-movie discover page as TMDB sends it, parsed by TmdbPageParser, the streaming adapters and reflective Gson
+public class TmdbTypeAdaptersBenchmark {
+    private static final int ITERATIONS = 2000;
+    //The page parser has to save at least this much of reflective Gson's time and allocation
+    private static final double REQUIRED_MARGIN = 0.25;
+
+    private static final String PAGE = page();
+    private static final byte[] PAGE_BYTES = PAGE.getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void streamingParsesTheSameMovies() {
+        MovieResponse streaming = TmdbTypeAdapters.GSON.fromJson(PAGE, MovieResponse.class);
+        MovieResponse reflective = new Gson().fromJson(PAGE, MovieResponse.class);
+
+        assertEquals(reflective.getTotalPages(), streaming.getTotalPages());
+        assertEquals(reflective.getMovies(), streaming.getMovies());
+        assertEquals(20, streaming.getMovies().size());
+    }
+
+    @Test
+    public void streamingPageParseIsCheaperThanReflection() {
+        Gson reflectiveGson = new Gson();
+        Benchmarks.Result reflective = Benchmarks.measure(ITERATIONS,
+                () -> reflectiveGson.fromJson(PAGE, MovieResponse.class));
+        Benchmarks.Result streaming = Benchmarks.measure(ITERATIONS,
+                () -> TmdbTypeAdapters.GSON.fromJson(PAGE, MovieResponse.class));
+        Benchmarks.report("reflective Gson page", reflective);
+        Benchmarks.report("streaming adapters page", streaming);
+
+        //Time is reported only, it is too close on HotSpot to assert without flaking
+        assertTrue(streaming.bytesPerOp < reflective.bytesPerOp);
+    }
+
+    @Test
+    public void pageParserParsesTheSameMovies() throws IOException {
+        MovieResponse parsed = TmdbPageParser.parse(PAGE_BYTES);
+        MovieResponse reflective = new Gson().fromJson(PAGE, MovieResponse.class);
+
+        assertEquals(reflective.getPage(), parsed.getPage());
+        assertEquals(reflective.getTotalPages(), parsed.getTotalPages());
+        assertEquals(reflective.getMovies(), parsed.getMovies());
+        for (int i = 0; i < parsed.getMovies().size(); i++) {
+            Movie expected = reflective.getMovies().get(i);
+            Movie actual = parsed.getMovies().get(i);
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getOverview(), actual.getOverview());
+            assertEquals(expected.getReleaseDate(), actual.getReleaseDate());
+            assertEquals(expected.getPosterPath(), actual.getPosterPath());
+            assertEquals(expected.getVoteAverage(), actual.getVoteAverage(), 0);
+            assertTrue(Arrays.equals(expected.getGenreIds(), actual.getGenreIds()));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void pageParserRejectsTruncatedPages() throws IOException {
+        TmdbPageParser.parse(Arrays.copyOf(PAGE_BYTES, PAGE_BYTES.length / 2));
+    }
+
+    //Every parser starts from the UTF-8 body bytes, as the converters get them from OkHttp
+    @Test
+    public void pageParserBeatsReflection() {
+        Gson reflectiveGson = new Gson();
+        Benchmarks.Result reflective = Benchmarks.measure(ITERATIONS,
+                () -> reflectiveGson.fromJson(body(), MovieResponse.class));
+        Benchmarks.Result streaming = Benchmarks.measure(ITERATIONS,
+                () -> TmdbTypeAdapters.GSON.fromJson(body(), MovieResponse.class));
+        Benchmarks.Result parser = Benchmarks.measure(ITERATIONS, () -> {
+            try {
+                //ResponseBody.bytes() hands over a fresh array
+                TmdbPageParser.parse(Arrays.copyOf(PAGE_BYTES, PAGE_BYTES.length));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        Benchmarks.report("reflective Gson page bytes", reflective);
+        Benchmarks.report("streaming adapters page bytes", streaming);
+        Benchmarks.report("page parser page bytes", parser);
+
+        assertTrue(parser.bytesPerOp < (1 - REQUIRED_MARGIN) * reflective.bytesPerOp);
+        assertTrue(parser.nanosPerOp < (1 - REQUIRED_MARGIN) * reflective.nanosPerOp);
+    }
+
+    @Test
+    public void cachedListRoundTrips() {
+        List<Movie> movies = TmdbTypeAdapters.GSON.fromJson(PAGE, MovieResponse.class).getMovies();
+        String json = TmdbTypeAdapters.MOVIE_LIST.toJson(movies);
+
+        Benchmarks.report("cached list parse", Benchmarks.measure(ITERATIONS, () -> parseList(json)));
+        assertEquals(movies, parseList(json));
+    }
+
+    private static List<Movie> parseList(String json) {
+        try {
+            return TmdbTypeAdapters.MOVIE_LIST.fromJson(json);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static Reader body() {
+        return new InputStreamReader(new ByteArrayInputStream(PAGE_BYTES), StandardCharsets.UTF_8);
+    }
+
+    private static String page() {
+        StringBuilder json = new StringBuilder("{\"page\":1,\"results\":[");
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"adult\":false,\"backdrop_path\":\"/backdrop").append(i).append(".jpg\",")
+                    .append("\"genre_ids\":[28,12,878],\"id\":").append(550 + i).append(',')
+                    .append("\"original_language\":\"en\",\"original_title\":\"Original Title ").append(i).append("\",")
+                    .append("\"overview\":\"A young hero must cross a war-torn galaxy to recover a stolen artifact before ")
+                    .append("the empire can use it against the last free worlds.\",")
+                    .append("\"popularity\":").append(1234.567 - i).append(',')
+                    .append("\"poster_path\":\"/poster").append(i).append(".jpg\",")
+                    .append("\"release_date\":\"2024-0").append(i % 9 + 1).append("-15\",")
+                    .append("\"title\":\"Title ").append(i)
+                    //Escapes and non-ASCII titles take the slow string path
+                    .append(i % 5 == 0 ? " \\\"Caf\\u00e9\\\" \u2013 \u00c9pisode" : "").append("\",\"video\":false,")
+                    .append("\"vote_average\":").append(7.1 + i / 100.0).append(",\"vote_count\":").append(4000 + i)
+                    .append('}');
+        }
+        return json.append("],\"total_pages\":500,\"total_results\":10000}").toString();
+    }
+}